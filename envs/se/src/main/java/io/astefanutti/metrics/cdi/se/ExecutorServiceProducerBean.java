@@ -0,0 +1,68 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.annotation.Metric;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Disposes;
+import javax.enterprise.inject.Produces;
+import javax.enterprise.inject.Typed;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@ApplicationScoped
+public class ExecutorServiceProducerBean {
+
+    @Produces
+    @Metric(name = "executor", absolute = true)
+    ExecutorService executor() {
+        // Single thread with a single slot queue so that the third concurrent task gets rejected
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1));
+    }
+
+    @Produces
+    @FooQualifier
+    @Metric(name = "unboundedExecutor", absolute = true)
+    ExecutorService unboundedExecutor() {
+        // Single thread with an unbounded queue so that cancelled tasks do not get subsequent tasks rejected
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+    }
+
+    @Produces
+    @Typed(ScheduledExecutorService.class)
+    @Metric(name = "scheduledExecutor", absolute = true)
+    ScheduledExecutorService scheduledExecutor() {
+        return new ScheduledThreadPoolExecutor(1);
+    }
+
+    void shutdown(@Disposes @Metric(name = "executor", absolute = true) ExecutorService executor) {
+        executor.shutdownNow();
+    }
+
+    void shutdownUnbounded(@Disposes @FooQualifier @Metric(name = "unboundedExecutor", absolute = true) ExecutorService executor) {
+        executor.shutdownNow();
+    }
+
+    void shutdownScheduled(@Disposes @Metric(name = "scheduledExecutor", absolute = true) ScheduledExecutorService executor) {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.annotation.Timed;
+import io.astefanutti.metrics.cdi.ExpectedInterval;
+
+import java.util.concurrent.TimeUnit;
+
+public class ExpectedIntervalTimedMethodBean {
+
+    @Timed(name = "expectedIntervalTimedMethod")
+    @ExpectedInterval(value = 10, unit = TimeUnit.MILLISECONDS)
+    public void expectedIntervalTimedMethod(long duration) throws InterruptedException {
+        Thread.sleep(duration);
+    }
+
+    @Timed(name = "stalledTimedMethod")
+    @ExpectedInterval(value = 1, unit = TimeUnit.MICROSECONDS)
+    public void stalledTimedMethod(long duration) throws InterruptedException {
+        Thread.sleep(duration);
+    }
+}
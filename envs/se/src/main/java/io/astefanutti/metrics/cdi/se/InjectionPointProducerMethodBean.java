@@ -0,0 +1,66 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.annotation.Metric;
+import io.astefanutti.metrics.cdi.InRegistry;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+import javax.enterprise.inject.spi.InjectionPoint;
+import java.util.concurrent.atomic.AtomicLong;
+
+@ApplicationScoped
+public class InjectionPointProducerMethodBean {
+
+    private final AtomicLong productions = new AtomicLong();
+
+    @Produces
+    @FooQualifier
+    Timer slidingWindowTimer(InjectionPoint ip) {
+        productions.incrementAndGet();
+        return new Timer(new SlidingWindowReservoir(10));
+    }
+
+    @Produces
+    @FooQualifier
+    @InRegistry("hot")
+    Histogram slidingWindowHistogram(InjectionPoint ip) {
+        return new Histogram(new SlidingWindowReservoir(10));
+    }
+
+    @Produces
+    @FooQualifier
+    Meter selfRegisteredMeter(InjectionPoint ip, MetricRegistry registry) {
+        return registry.meter(ip.getAnnotated().getAnnotation(Metric.class).name());
+    }
+
+    @Produces
+    @FooQualifier
+    Counter selfRegisteredCounter(InjectionPoint ip, MetricRegistry registry) {
+        return registry.counter("selfRegisteredCounter");
+    }
+
+    public long getProductions() {
+        return productions.get();
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@ApplicationScoped
+public class MetricSetProducerBean {
+
+    private final Counter connections = new Counter();
+
+    private final AtomicLong evaluations = new AtomicLong();
+
+    @Produces
+    @com.codahale.metrics.annotation.Metric(name = "pool", absolute = true)
+    MetricSet pool() {
+        final Map<String, Metric> metrics = new HashMap<>();
+        metrics.put("connections", connections);
+        metrics.put("size", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return evaluations.incrementAndGet();
+            }
+        });
+        metrics.put("stats", metricSet(Collections.<String, Metric>singletonMap("idle", new Counter())));
+        return metricSet(metrics);
+    }
+
+    public Counter getConnections() {
+        return connections;
+    }
+
+    public long getEvaluations() {
+        return evaluations.get();
+    }
+
+    private static MetricSet metricSet(final Map<String, Metric> metrics) {
+        return new MetricSet() {
+            @Override
+            public Map<String, Metric> getMetrics() {
+                return metrics;
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.annotation.Counted;
+import com.codahale.metrics.annotation.Metered;
+import com.codahale.metrics.annotation.Timed;
+import io.astefanutti.metrics.cdi.MetricTag;
+
+import java.util.concurrent.TimeUnit;
+
+public class MetricTagMethodBean {
+
+    @Timed(name = "enumTaggedMethod")
+    public void enumTaggedMethod(@MetricTag TimeUnit unit) {
+    }
+
+    @Metered(name = "knownValuesTaggedMethod")
+    public void knownValuesTaggedMethod(@MetricTag(values = {"gold", "silver"}) String tier) {
+    }
+
+    @Timed(name = "limitedTaggedMethod")
+    public void limitedTaggedMethod(Object ignored, @MetricTag(limit = 2) int customer) {
+    }
+
+    @Timed(name = "overloadedTaggedMethod")
+    public void overloadedTaggedMethod(@MetricTag TimeUnit unit) {
+    }
+
+    @Timed(name = "overloadedTaggedMethod")
+    public void overloadedTaggedMethod(Object ignored, @MetricTag(values = {"gold", "silver"}) String tier) {
+    }
+
+    @Counted(name = "multiTaggedMethod", monotonic = true)
+    public void multiTaggedMethod(@MetricTag String region, @MetricTag String customer, @MetricTag(values = {"web", "mobile"}) String channel) {
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.annotation.Metric;
+import com.codahale.metrics.annotation.Timed;
+import io.astefanutti.metrics.cdi.Recorded;
+
+import javax.inject.Inject;
+
+public class RecordedTimedMethodBean {
+
+    @Inject
+    @Recorded
+    @Metric(name = "recordedHistogram")
+    private Histogram histogram;
+
+    @Timed(name = "recordedTimedMethod")
+    @Recorded
+    public void recordedTimedMethod() {
+    }
+
+    public void update(long value) {
+        histogram.update(value);
+    }
+}
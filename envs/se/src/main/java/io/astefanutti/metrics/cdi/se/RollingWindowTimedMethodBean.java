@@ -0,0 +1,41 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.annotation.Metric;
+import com.codahale.metrics.annotation.Timed;
+import io.astefanutti.metrics.cdi.RollingWindow;
+
+import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
+
+public class RollingWindowTimedMethodBean {
+
+    @Inject
+    @RollingWindow(window = 1, unit = TimeUnit.SECONDS, intervals = 2)
+    @Metric(name = "rollingWindowHistogram")
+    private Histogram histogram;
+
+    @Timed(name = "rollingWindowTimedMethod")
+    @RollingWindow(window = 1, unit = TimeUnit.SECONDS, intervals = 2)
+    public void rollingWindowTimedMethod() {
+    }
+
+    public void update(long value) {
+        histogram.update(value);
+    }
+}
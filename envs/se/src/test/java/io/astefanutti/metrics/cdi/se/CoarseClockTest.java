@@ -0,0 +1,82 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.astefanutti.metrics.cdi.CoarseClock;
+import io.astefanutti.metrics.cdi.MetricsConfiguration;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class CoarseClockTest {
+
+    private final static String TIMER_NAME = MetricRegistry.name(SlowTimedMethodBean.class, "slowTimedMethod");
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean
+            .addClass(SlowTimedMethodBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    static void configuration(@Observes MetricsConfiguration configuration) {
+        // The clock does not move during the test so that the timer records zero durations
+        configuration.useCoarseClock(1, TimeUnit.HOURS);
+    }
+
+    @Inject
+    private Clock clock;
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private SlowTimedMethodBean bean;
+
+    @Test
+    public void timerUsesCoarseClock() throws InterruptedException {
+        assertThat("Clock is incorrect", clock, is(instanceOf(CoarseClock.class)));
+
+        bean.slowTimedMethod("slow", 20L);
+
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(1L)));
+        assertThat("Timer max is incorrect", timer.getSnapshot().getMax(), is(equalTo(0L)));
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import io.astefanutti.metrics.cdi.DeltaSnapshots;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class DeltaSnapshotsTest {
+
+    private final static String TIMER_NAME = MetricRegistry.name(TimedMethodBean.class, "timedMethod");
+
+    private final static String CONSUMER = "test";
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean
+            .addClass(TimedMethodBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private DeltaSnapshots snapshots;
+
+    @Inject
+    private TimedMethodBean bean;
+
+    @Test
+    @InSequence(1)
+    public void firstSnapshotContainsAllMetrics() {
+        assertThat("Timer is not registered correctly", registry.getTimers(), hasKey(TIMER_NAME));
+
+        assertThat("Delta snapshot is incorrect", snapshots.snapshot(CONSUMER).keySet(), is(equalTo(registry.getNames())));
+    }
+
+    @Test
+    @InSequence(2)
+    public void snapshotWithoutChangeIsEmpty() {
+        assertThat("Delta snapshot is incorrect", snapshots.snapshot(CONSUMER).keySet(), is(empty()));
+    }
+
+    @Test
+    @InSequence(3)
+    public void snapshotContainsCalledTimer() {
+        bean.timedMethod();
+
+        assertThat("Delta snapshot is incorrect", snapshots.snapshot(CONSUMER).keySet(), contains(TIMER_NAME));
+        assertThat("Delta snapshot is incorrect", snapshots.snapshot(CONSUMER).keySet(), is(empty()));
+    }
+
+    @Test
+    @InSequence(4)
+    public void filterMatchesCalledTimer() {
+        MetricFilter filter = snapshots.filter("filter");
+        assertThat("Delta filter is incorrect", registry.getTimers(filter), hasKey(TIMER_NAME));
+        assertThat("Delta filter is incorrect", registry.getTimers(filter).keySet(), is(empty()));
+
+        bean.timedMethod();
+
+        assertThat("Delta filter is incorrect", registry.getTimers(filter), hasKey(TIMER_NAME));
+        // The other consumers are independent
+        assertThat("Delta snapshot is incorrect", snapshots.snapshot(CONSUMER).keySet(), contains(TIMER_NAME));
+    }
+
+    @Test
+    @InSequence(5)
+    public void resetConsumer() {
+        snapshots.reset(CONSUMER);
+
+        assertThat("Delta snapshot is incorrect", snapshots.snapshot(CONSUMER).keySet(), is(equalTo(registry.getNames())));
+    }
+}
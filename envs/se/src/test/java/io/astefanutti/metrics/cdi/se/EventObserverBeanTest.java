@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.annotation.Timed;
+import io.astefanutti.metrics.cdi.MetricsControl;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(Arquillian.class)
+public class EventObserverBeanTest {
+
+    private final static String FIRE_TIMER_NAME = MetricRegistry.name(String.class, "fire");
+
+    private final static String OBSERVER_TIMER_NAME = MetricRegistry.name(String.class, "observer", "EventObserverBean", "observe");
+
+    private final static long FIRE_COUNT = 1L + Math.round(Math.random() * 10);
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean
+            .addClass(EventObserverBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Metrics CDI deployment properties
+            .addAsManifestResource(new StringAsset("metrics.cdi.events=true"), "metrics-cdi.properties")
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private EventObserverBean bean;
+
+    @Inject
+    private Event<String> event;
+
+    @Inject
+    private MetricsControl control;
+
+    @Test
+    @InSequence(1)
+    public void fireEvents() {
+        for (int i = 0; i < FIRE_COUNT; i++)
+            event.fire("event");
+
+        assertThat("Events are not observed", bean.getObserved(), is(equalTo(FIRE_COUNT)));
+
+        assertThat("Timer is not registered correctly", registry.getTimers(), hasKey(FIRE_TIMER_NAME));
+        assertThat("Timer count is incorrect", registry.getTimers().get(FIRE_TIMER_NAME).getCount(), is(equalTo(FIRE_COUNT)));
+
+        assertThat("Timer is not registered correctly", registry.getTimers(), hasKey(OBSERVER_TIMER_NAME));
+        assertThat("Timer count is incorrect", registry.getTimers().get(OBSERVER_TIMER_NAME).getCount(), is(equalTo(FIRE_COUNT)));
+    }
+
+    @Test
+    @InSequence(2)
+    public void fireNullEvent() {
+        try {
+            event.fire(null);
+            fail("Null event has been fired");
+        } catch (IllegalArgumentException expected) {
+            // The container reports the null payload
+        }
+        assertThat("Timer count is incorrect", registry.getTimers().get(FIRE_TIMER_NAME).getCount(), is(equalTo(FIRE_COUNT)));
+    }
+
+    @Test
+    @InSequence(3)
+    public void fireEventsWhileDisabled() {
+        control.setEnabled(false);
+        event.fire("event");
+        control.setEnabled(true);
+
+        control.setAnnotationEnabled(Timed.class, false);
+        event.fire("event");
+        control.setAnnotationEnabled(Timed.class, true);
+
+        assertThat("Events are not observed", bean.getObserved(), is(equalTo(FIRE_COUNT + 2)));
+        assertThat("Timer count is incorrect", registry.getTimers().get(FIRE_TIMER_NAME).getCount(), is(equalTo(FIRE_COUNT)));
+        assertThat("Timer count is incorrect", registry.getTimers().get(OBSERVER_TIMER_NAME).getCount(), is(equalTo(FIRE_COUNT)));
+    }
+}
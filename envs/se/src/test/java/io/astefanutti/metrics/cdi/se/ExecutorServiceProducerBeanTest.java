@@ -0,0 +1,198 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.MetricRegistry;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(Arquillian.class)
+public class ExecutorServiceProducerBeanTest {
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean
+            .addClasses(ExecutorServiceProducerBean.class, FooQualifier.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    @com.codahale.metrics.annotation.Metric(name = "executor", absolute = true)
+    private ExecutorService executor;
+
+    @Inject
+    @FooQualifier
+    @com.codahale.metrics.annotation.Metric(name = "unboundedExecutor", absolute = true)
+    private ExecutorService unbounded;
+
+    @Inject
+    @com.codahale.metrics.annotation.Metric(name = "scheduledExecutor", absolute = true)
+    private ScheduledExecutorService scheduled;
+
+    @Test
+    @InSequence(1)
+    public void executorMetricsRegistered() {
+        assertThat("Metrics are not registered correctly", registry.getMetrics().keySet(),
+            containsInAnyOrder("executor.wait", "executor.duration", "executor.running", "executor.queued", "executor.rejected",
+                "unboundedExecutor.wait", "unboundedExecutor.duration", "unboundedExecutor.running", "unboundedExecutor.queued", "unboundedExecutor.rejected",
+                "scheduledExecutor.wait", "scheduledExecutor.duration", "scheduledExecutor.running", "scheduledExecutor.queued", "scheduledExecutor.rejected"));
+    }
+
+    @Test
+    @InSequence(2)
+    public void submitTasks() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Future<Long> running = executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws InterruptedException {
+                started.countDown();
+                release.await();
+                return 1L;
+            }
+        });
+        assertThat("Task has not started", started.await(10, TimeUnit.SECONDS), is(true));
+        Future<Long> queued = executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return 2L;
+            }
+        });
+
+        assertThat("Running count is incorrect", registry.getCounters().get("executor.running").getCount(), is(equalTo(1L)));
+        assertThat("Queued count is incorrect", registry.getCounters().get("executor.queued").getCount(), is(equalTo(1L)));
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            fail("Task has not been rejected");
+        } catch (RejectedExecutionException expected) {
+            assertThat("Rejected count is incorrect", registry.getMeters().get("executor.rejected").getCount(), is(equalTo(1L)));
+        }
+
+        release.countDown();
+        assertThat("Task result is incorrect", running.get(10, TimeUnit.SECONDS), is(equalTo(1L)));
+        assertThat("Task result is incorrect", queued.get(10, TimeUnit.SECONDS), is(equalTo(2L)));
+
+        assertThat("Wait timer count is incorrect", registry.getTimers().get("executor.wait").getCount(), is(equalTo(2L)));
+        assertThat("Duration timer count is incorrect", registry.getTimers().get("executor.duration").getCount(), is(equalTo(2L)));
+        assertThat("Queued task has not waited", registry.getTimers().get("executor.wait").getSnapshot().getMax(), is(greaterThanOrEqualTo(registry.getTimers().get("executor.duration").getSnapshot().getMin())));
+        assertThat("Running count is incorrect", registry.getCounters().get("executor.running").getCount(), is(equalTo(0L)));
+        assertThat("Queued count is incorrect", registry.getCounters().get("executor.queued").getCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    @InSequence(3)
+    public void cancelQueuedTasks() throws Exception {
+        CountDownLatch release = block(unbounded);
+        Future<Long> cancelled = unbounded.submit(task(1L));
+        assertThat("Queued count is incorrect", registry.getCounters().get("unboundedExecutor.queued").getCount(), is(equalTo(1L)));
+        cancelled.cancel(false);
+        assertThat("Queued count is incorrect", registry.getCounters().get("unboundedExecutor.queued").getCount(), is(equalTo(0L)));
+
+        // The tasks that are not completed on timeout get cancelled
+        List<Future<Long>> timedOut = unbounded.invokeAll(Collections.singletonList(task(2L)), 100, TimeUnit.MILLISECONDS);
+        assertThat("Task has not been cancelled", timedOut.get(0).isCancelled(), is(true));
+        assertThat("Queued count is incorrect", registry.getCounters().get("unboundedExecutor.queued").getCount(), is(equalTo(0L)));
+
+        release.countDown();
+        // The cancelled tasks are discarded by the worker before that one runs
+        assertThat("Task result is incorrect", unbounded.submit(task(3L)).get(10, TimeUnit.SECONDS), is(equalTo(3L)));
+        assertThat("Running count is incorrect", registry.getCounters().get("unboundedExecutor.running").getCount(), is(equalTo(0L)));
+        assertThat("Queued count is incorrect", registry.getCounters().get("unboundedExecutor.queued").getCount(), is(equalTo(0L)));
+        assertThat("Wait timer count is incorrect", registry.getTimers().get("unboundedExecutor.wait").getCount(), is(equalTo(2L)));
+    }
+
+    @Test
+    @InSequence(4)
+    public void compareProxiedExecutors() throws Exception {
+        // Sub-interfaces, like ScheduledExecutorService, get proxied
+        assertThat("Proxy is not equal to itself", scheduled.equals(scheduled), is(true));
+        assertThat("Proxy is equal to another executor", scheduled.equals(executor), is(false));
+
+        Set<ExecutorService> executors = new HashSet<>();
+        executors.add(scheduled);
+        assertThat("Proxy is not found in a set", executors.contains(scheduled), is(true));
+        assertThat("Proxy is added twice to a set", executors.add(scheduled), is(false));
+        assertThat("Proxy is not found in a set", executors, contains((ExecutorService) scheduled));
+
+        assertThat("Task result is incorrect", scheduled.submit(task(1L)).get(10, TimeUnit.SECONDS), is(equalTo(1L)));
+        assertThat("Duration timer count is incorrect", registry.getTimers().get("scheduledExecutor.duration").getCount(), is(equalTo(1L)));
+    }
+
+    private static CountDownLatch block(ExecutorService executor) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+                started.countDown();
+                release.await();
+                return null;
+            }
+        });
+        assertThat("Task has not started", started.await(10, TimeUnit.SECONDS), is(true));
+        return release;
+    }
+
+    private static Callable<Long> task(final long result) {
+        return new Callable<Long>() {
+            @Override
+            public Long call() {
+                return result;
+            }
+        };
+    }
+}
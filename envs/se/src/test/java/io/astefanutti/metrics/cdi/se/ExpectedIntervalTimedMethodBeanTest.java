@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.astefanutti.metrics.cdi.ExpectedInterval;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class ExpectedIntervalTimedMethodBeanTest {
+
+    private final static String TIMER_NAME = MetricRegistry.name(ExpectedIntervalTimedMethodBean.class, "expectedIntervalTimedMethod");
+
+    private final static String CORRECTED_NAME = MetricRegistry.name(TIMER_NAME, "corrected");
+
+    private final static String STALLED_CORRECTED_NAME = MetricRegistry.name(ExpectedIntervalTimedMethodBean.class, "stalledTimedMethod", "corrected");
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean
+            .addClass(ExpectedIntervalTimedMethodBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private ExpectedIntervalTimedMethodBean bean;
+
+    @Test
+    @InSequence(1)
+    public void callWithinExpectedInterval() throws InterruptedException {
+        assertThat("Timer is not registered correctly", registry.getTimers(), hasKey(TIMER_NAME));
+        assertThat("Histogram is not registered correctly", registry.getHistograms(), hasKey(CORRECTED_NAME));
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+        Histogram corrected = registry.getHistograms().get(CORRECTED_NAME);
+
+        bean.expectedIntervalTimedMethod(0L);
+
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(1L)));
+        assertThat("Histogram count is incorrect", corrected.getCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    @InSequence(2)
+    public void callExceedingExpectedInterval() throws InterruptedException {
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+        Histogram corrected = registry.getHistograms().get(CORRECTED_NAME);
+
+        // 55ms or more with a 10ms expected interval back-fills at least 4 samples: 45ms, 35ms, 25ms and 15ms
+        bean.expectedIntervalTimedMethod(55L);
+
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(2L)));
+        assertThat("Timer max is incorrect", timer.getSnapshot().getMax(), is(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(55L))));
+        assertThat("Histogram count is incorrect", corrected.getCount(), is(greaterThanOrEqualTo(6L)));
+        assertThat("Histogram max is incorrect", corrected.getSnapshot().getMax(), is(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(55L))));
+        assertThat("Histogram back-filled values are incorrect", (double) corrected.getSnapshot().getValues()[1], is(lessThan((double) TimeUnit.MILLISECONDS.toNanos(20L))));
+    }
+
+    @Test
+    @InSequence(3)
+    public void callStalledFarBeyondExpectedInterval() throws InterruptedException {
+        Histogram corrected = registry.getHistograms().get(STALLED_CORRECTED_NAME);
+
+        // 100ms or more with a 1us expected interval omits about 100000 samples
+        bean.stalledTimedMethod(100L);
+
+        assertThat("Histogram count is incorrect", corrected.getCount(), is(equalTo(1L + ExpectedInterval.MAX_SAMPLES)));
+        assertThat("Histogram max is incorrect", corrected.getSnapshot().getMax(), is(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100L))));
+        assertThat("Histogram min is incorrect", corrected.getSnapshot().getMin(), is(lessThan(TimeUnit.MILLISECONDS.toNanos(1L))));
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.astefanutti.metrics.cdi.GaugeAccessor;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class GaugeAccessorMethodBeanTest {
+
+    private final static String GAUGE_NAME = MetricRegistry.name(GaugeAccessorMethodBean.class, "callerGaugeMethod");
+
+    private final static String REFLECTIVE_GAUGE_NAME = MetricRegistry.name(GaugeAccessorMethodBean.class, "reflectiveGaugeMethod");
+
+    @Deployment
+    static Archive<?> createTestArchive() throws ClassNotFoundException {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean and its generated gauge accessor
+            .addClasses(GaugeAccessorMethodBean.class, Class.forName(GaugeAccessorMethodBean.class.getName() + GaugeAccessor.SUFFIX))
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private GaugeAccessorMethodBean bean;
+
+    @Test
+    public void gaugeReadWithoutReflection() throws InterruptedException {
+        assertThat("Gauge is not registered correctly", registry.getGauges(), hasKey(GAUGE_NAME));
+        @SuppressWarnings("unchecked")
+        Gauge<String> gauge = registry.getGauges().get(GAUGE_NAME);
+
+        // The gauge method is invoked directly by the generated accessor rather than with reflection
+        assertThat("Gauge is read with reflection", gauge.getValue(), is(equalTo(GaugeAccessorMethodBean.class.getName() + GaugeAccessor.SUFFIX)));
+
+        assertThat("Gauge is not registered correctly", registry.getGauges(), hasKey(REFLECTIVE_GAUGE_NAME));
+
+        // The gauge is read from a new thread, whose stack frames are those of the gauge read path only, as the test is invoked with reflection
+        final Gauge<?> reflective = registry.getGauges().get(REFLECTIVE_GAUGE_NAME);
+        final AtomicReference<Object> value = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                value.set(reflective.getValue());
+            }
+        });
+        thread.start();
+        thread.join();
+        // No frame of the gauge read path is a reflective method invocation
+        assertThat("Gauge is read with reflection", value.get(), is(equalTo((Object) false)));
+    }
+}
@@ -16,6 +16,7 @@
 package io.astefanutti.metrics.cdi.se;
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Metric;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
@@ -34,6 +35,7 @@ import javax.inject.Inject;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 @RunWith(Arquillian.class)
 public class GaugeInjectionBeanTest {
@@ -49,6 +51,11 @@ public class GaugeInjectionBeanTest {
             .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
     }
 
+    private final static String GAUGE_NAME = "io.astefanutti.metrics.cdi.se.GaugeMethodBean.gaugeMethod";
+
+    @Inject
+    private MetricRegistry registry;
+
     @Inject
     private GaugeMethodBean bean;
 
@@ -79,4 +86,32 @@ public class GaugeInjectionBeanTest {
 
         assertThat("Gauge value is incorrect", gauge.getValue(), is(equalTo(value)));
     }
-}
\ No newline at end of file
+
+    @Test
+    @InSequence(3)
+    public void callGaugeAfterRegistryReplacement() {
+        // Make sure that the gauge resolved before gets resolved again
+        assertThat("Gauge value is incorrect", gauge.getValue(), is(equalTo(bean.getGauge())));
+        registry.remove(GAUGE_NAME);
+        registry.register(GAUGE_NAME, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return -1L;
+            }
+        });
+
+        assertThat("Gauge value is incorrect", gauge.getValue(), is(equalTo(-1L)));
+    }
+
+    @Test
+    @InSequence(4)
+    public void callGaugeAfterRegistryRemoval() {
+        registry.remove(GAUGE_NAME);
+        try {
+            gauge.getValue();
+            fail("No exception has been thrown for a gauge removed from the registry");
+        } catch (IllegalStateException cause) {
+            assertThat("Exception message is incorrect", cause.getMessage(), is(equalTo("No gauge with name [" + GAUGE_NAME + "] found in registry [" + registry + "]")));
+        }
+    }
+}
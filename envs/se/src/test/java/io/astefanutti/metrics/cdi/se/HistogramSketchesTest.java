@@ -0,0 +1,207 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import io.astefanutti.metrics.cdi.HistogramSketch;
+import io.astefanutti.metrics.cdi.HistogramSketches;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import io.astefanutti.metrics.cdi.SketchAggregator;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(Arquillian.class)
+public class HistogramSketchesTest {
+
+    private final static String RECORDED_TIMER_NAME = MetricRegistry.name(RecordedTimedMethodBean.class, "recordedTimedMethod");
+
+    private final static String TIMER_NAME = MetricRegistry.name(TimedMethodBean.class, "timedMethod");
+
+    private final static String NODE_TIMER_NAME = "nodeTimer";
+
+    private final static String ROLLING_HISTOGRAM_NAME = MetricRegistry.name(RollingWindowTimedMethodBean.class, "rollingWindowHistogram");
+
+    private final static String HOT_TIMER_NAME = "hot:" + MetricRegistry.name(InRegistryMethodBean.class, "hotTimedMethod");
+
+    private final static int CALLS = 100;
+
+    private final static int NODES = 3;
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test beans
+            .addClasses(RecordedTimedMethodBean.class, TimedMethodBean.class, RollingWindowTimedMethodBean.class, InRegistryMethodBean.class, HotMetricRegistryProducerBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private HistogramSketches sketches;
+
+    @Inject
+    private RecordedTimedMethodBean recordedBean;
+
+    @Inject
+    private TimedMethodBean timedBean;
+
+    @Inject
+    private RollingWindowTimedMethodBean rollingBean;
+
+    @Inject
+    private InRegistryMethodBean registryBean;
+
+    @Test
+    @InSequence(1)
+    public void sketchTimedMethods() {
+        for (int i = 0; i < CALLS; i++) {
+            recordedBean.recordedTimedMethod();
+            timedBean.timedMethod();
+        }
+
+        SortedMap<String, HistogramSketch> sketches = this.sketches.sketches();
+        assertThat("Sketches are incorrect", sketches.keySet(), hasItems(RECORDED_TIMER_NAME, TIMER_NAME));
+        assertThat("Recorded timer sketch count is incorrect", sketches.get(RECORDED_TIMER_NAME).getCount(), is(equalTo((long) CALLS)));
+        assertThat("Timer sketch count is incorrect", sketches.get(TIMER_NAME).getCount(), is(equalTo((long) CALLS)));
+
+        // Make sure the encoding round-trips
+        HistogramSketch sketch = sketches.get(RECORDED_TIMER_NAME);
+        HistogramSketch decoded = HistogramSketch.decode(sketch.encode());
+        assertThat("Decoded sketch count is incorrect", decoded.getCount(), is(equalTo(sketch.getCount())));
+        assertThat("Decoded sketch values are incorrect", decoded.getSnapshot().getValues(), is(equalTo(sketch.getSnapshot().getValues())));
+        assertThat("Decoded sketch encoding is incorrect", decoded.encode(), is(equalTo(sketch.encode())));
+    }
+
+    @Test
+    @InSequence(2)
+    public void aggregateExportedSketches() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try {
+            // Each export stands for a node whose timer records its own range of values
+            for (int node = 0; node < NODES; node++) {
+                Timer timer = registry.timer(NODE_TIMER_NAME);
+                for (long value = 1; value <= 1000; value++)
+                    timer.update(node * 1000 + value, TimeUnit.MICROSECONDS);
+
+                files.add(export());
+                registry.remove(NODE_TIMER_NAME);
+            }
+
+            SortedMap<String, HistogramSketch> aggregated = SketchAggregator.aggregate(files);
+            assertThat("Aggregated sketches are incorrect", aggregated.keySet(), hasItems(RECORDED_TIMER_NAME, TIMER_NAME, NODE_TIMER_NAME));
+            assertThat("Aggregated recorded timer count is incorrect", aggregated.get(RECORDED_TIMER_NAME).getCount(), is(equalTo((long) NODES * CALLS)));
+            assertThat("Aggregated timer count is incorrect", aggregated.get(TIMER_NAME).getCount(), is(equalTo((long) NODES * CALLS)));
+
+            // Fleet-wide percentiles are computed over the values of all the nodes with a relative precision better than 3%
+            Snapshot snapshot = aggregated.get(NODE_TIMER_NAME).getSnapshot();
+            assertThat("Aggregated node timer count is incorrect", aggregated.get(NODE_TIMER_NAME).getCount(), is(equalTo(NODES * 1000L)));
+            assertThat("Aggregated node timer median is incorrect", snapshot.getMedian(), is(closeTo(1500000.0, 45000.0)));
+            assertThat("Aggregated node timer 99th percentile is incorrect", snapshot.get99thPercentile(), is(closeTo(2970000.0, 90000.0)));
+
+            // Aggregated sketches can be aggregated in turn
+            Path merged = Files.createTempFile("sketches", ".tsv");
+            files.add(merged);
+            try (Writer writer = Files.newBufferedWriter(merged, StandardCharsets.UTF_8)) {
+                SketchAggregator.write(writer, aggregated);
+            }
+            assertThat("Re-aggregated node timer count is incorrect", SketchAggregator.aggregate(files).get(NODE_TIMER_NAME).getCount(), is(equalTo(2 * NODES * 1000L)));
+        } finally {
+            for (Path file : files)
+                Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @InSequence(3)
+    public void sketchHistogramsAndNamedRegistries() throws IOException, InterruptedException {
+        for (int i = 0; i < CALLS; i++) {
+            rollingBean.update(i + 1);
+            registryBean.hotTimedMethod();
+        }
+
+        SortedMap<String, HistogramSketch> sketches = this.sketches.sketches();
+        assertThat("Sketches are incorrect", sketches.keySet(), hasItems(ROLLING_HISTOGRAM_NAME, HOT_TIMER_NAME));
+        assertThat("Hot timer sketch count is incorrect", sketches.get(HOT_TIMER_NAME).getCount(), is(equalTo((long) CALLS)));
+        assertThat("Rolling histogram sketch size is incorrect", sketches.get(ROLLING_HISTOGRAM_NAME).getSnapshot().size(), is(equalTo(CALLS)));
+
+        // Let's wait for the window to roll over so that the sketch is empty while the metric count is retained
+        Thread.sleep(1500);
+        Path file = export();
+        try {
+            SortedMap<String, HistogramSketch> aggregated = SketchAggregator.aggregate(Collections.singleton(file));
+            assertThat("Rolling histogram sketch count is incorrect", aggregated.get(ROLLING_HISTOGRAM_NAME).getCount(), is(equalTo((long) CALLS)));
+            assertThat("Rolling histogram sketch size is incorrect", aggregated.get(ROLLING_HISTOGRAM_NAME).getSnapshot().size(), is(equalTo(0)));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void decodeMalformedSketches() {
+        assertThat("Sketch count is incorrect", HistogramSketch.decode("AQAB").getCount(), is(equalTo(1L)));
+        // Bucket gap beyond the integer range
+        decodeMalformedSketch("AYCAgIAQAQ==");
+        // Negative bucket count
+        decodeMalformedSketch("AQD///////////8B");
+    }
+
+    private static void decodeMalformedSketch(String encoded) {
+        try {
+            HistogramSketch.decode(encoded);
+            fail("Sketch [" + encoded + "] should not be decoded");
+        } catch (IllegalArgumentException cause) {
+            assertThat("Exception message is incorrect", cause.getMessage(), containsString("out of bounds"));
+        }
+    }
+
+    private Path export() throws IOException {
+        Path file = Files.createTempFile("sketches", ".tsv");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            sketches.export(writer);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.MetricRegistry;
+import io.astefanutti.metrics.cdi.Hotspot;
+import io.astefanutti.metrics.cdi.Hotspots;
+import io.astefanutti.metrics.cdi.MetricsConfiguration;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class HotspotsTest {
+
+    private final static String SLOW_TIMER_NAME = MetricRegistry.name(SlowTimedMethodBean.class, "slowTimedMethod");
+
+    private final static long CALL_COUNT = 1L + Math.round(Math.random() * 10);
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test beans
+            .addClasses(SlowTimedMethodBean.class, TimedMethodBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    static void configuration(@Observes MetricsConfiguration configuration) {
+        // The rankings are refreshed explicitly by the test
+        configuration.trackHotspots(1, TimeUnit.HOURS);
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private Hotspots hotspots;
+
+    @Inject
+    private SlowTimedMethodBean slowBean;
+
+    @Inject
+    private TimedMethodBean timedBean;
+
+    @Test
+    @InSequence(1)
+    public void rankTimedMethods() throws InterruptedException, JMException {
+        slowBean.slowTimedMethod("slow", 20L);
+        for (int i = 0; i < CALL_COUNT; i++)
+            timedBean.timedMethod();
+
+        refresh();
+
+        List<Hotspot> slowest = hotspots.getSlowest();
+        assertThat("Slowest ranking is incorrect", slowest, hasSize(2));
+        assertThat("Slowest hotspot is incorrect", slowest.get(0).getName(), is(equalTo(SLOW_TIMER_NAME)));
+        assertThat("Most called ranking is incorrect", hotspots.getMostCalled(), hasSize(2));
+        assertThat("Most time hotspot is incorrect", hotspots.getMostTime().get(0).getName(), is(equalTo(SLOW_TIMER_NAME)));
+        // The total time is the sum of the durations, which is at least the 20ms of the slow invocation
+        assertThat("Most time hotspot value is incorrect", hotspots.getMostTime().get(0).getValue(), is(greaterThanOrEqualTo((double) TimeUnit.MILLISECONDS.toNanos(20L))));
+
+        assertThat("Gauges are not registered correctly", registry.getGauges(), allOf(hasKey("hotspots.p99.1.value"), hasKey("hotspots.rate.1.value"), hasKey("hotspots.total.10.value")));
+        assertThat("Gauge name is incorrect", registry.getGauges().get("hotspots.p99.1.name").getValue(), is(equalTo((Object) SLOW_TIMER_NAME)));
+        assertThat("Gauge value is incorrect", registry.getGauges().get("hotspots.p99.1.value").getValue(), is(equalTo((Object) slowest.get(0).getValue())));
+        assertThat("Gauge value is incorrect", registry.getGauges().get("hotspots.p99.3.value").getValue(), is(equalTo((Object) 0D)));
+    }
+
+    @Test
+    @InSequence(2)
+    public void evictRemovedTimer() throws InterruptedException, JMException {
+        slowBean.slowTimedMethod("slow", 0L);
+        refresh();
+        assertThat("Slowest ranking is incorrect", hotspots.getSlowest(), hasItem(hasProperty("name", equalTo(SLOW_TIMER_NAME))));
+
+        registry.remove(SLOW_TIMER_NAME);
+        refresh();
+
+        assertThat("Slowest ranking is incorrect", hotspots.getSlowest(), not(hasItem(hasProperty("name", equalTo(SLOW_TIMER_NAME)))));
+    }
+
+    private static void refresh() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = server.queryNames(new ObjectName("io.astefanutti.metrics.cdi:type=Hotspots,*"), null).iterator().next();
+        server.invoke(name, "refresh", null, null);
+    }
+}
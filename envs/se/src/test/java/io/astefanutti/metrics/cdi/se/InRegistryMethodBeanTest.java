@@ -0,0 +1,87 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.MetricRegistry;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import io.astefanutti.metrics.cdi.RegistryName;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class InRegistryMethodBeanTest {
+
+    private final static String HOT_TIMER_NAME = MetricRegistry.name(InRegistryMethodBean.class, "hotTimedMethod");
+
+    private final static String HOT_COUNTER_NAME = MetricRegistry.name(InRegistryMethodBean.class, "hotCountedMethod");
+
+    private final static String HOT_GAUGE_NAME = MetricRegistry.name(InRegistryMethodBean.class, "hotGaugeMethod");
+
+    private final static String DEFAULT_TIMER_NAME = MetricRegistry.name(InRegistryMethodBean.class, "defaultTimedMethod");
+
+    private final static long CALL_COUNT = 1L + Math.round(Math.random() * 10);
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test beans
+            .addClasses(HotMetricRegistryProducerBean.class, InRegistryMethodBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    @RegistryName("hot")
+    private MetricRegistry hot;
+
+    @Inject
+    private InRegistryMethodBean bean;
+
+    @Test
+    public void metricsRoutedToRegistries() {
+        for (int i = 0; i < CALL_COUNT; i++) {
+            bean.hotTimedMethod();
+            bean.hotCountedMethod();
+            bean.defaultTimedMethod();
+        }
+
+        assertThat("Metrics are not registered correctly", hot.getMetrics().keySet(), containsInAnyOrder(HOT_TIMER_NAME, HOT_COUNTER_NAME, HOT_GAUGE_NAME));
+        assertThat("Metrics are not registered correctly", registry.getMetrics().keySet(), containsInAnyOrder(DEFAULT_TIMER_NAME));
+
+        assertThat("Timer count is incorrect", hot.getTimers().get(HOT_TIMER_NAME).getCount(), is(equalTo(CALL_COUNT)));
+        assertThat("Counter count is incorrect", hot.getCounters().get(HOT_COUNTER_NAME).getCount(), is(equalTo(CALL_COUNT)));
+        assertThat("Gauge value is incorrect", hot.getGauges().get(HOT_GAUGE_NAME).getValue(), is(equalTo((Object) 1L)));
+        assertThat("Timer count is incorrect", registry.getTimers().get(DEFAULT_TIMER_NAME).getCount(), is(equalTo(CALL_COUNT)));
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.annotation.Metric;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import io.astefanutti.metrics.cdi.RegistryName;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class InjectionPointProducerMethodBeanTest {
+
+    private final static String TIMER_NAME = "slidingWindowTimer";
+
+    private final static String HISTOGRAM_NAME = "slidingWindowHistogram";
+
+    private final static String CLASHING_TIMER_NAME = "clashingTimer";
+
+    private final static String METER_NAME = "selfRegisteredMeter";
+
+    private final static String COUNTER_NAME = "selfRegisteredCounter";
+
+    private final static String OTHER_COUNTER_NAME = "otherCounter";
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean
+            .addClasses(InjectionPointProducerMethodBean.class, FooQualifier.class, HotMetricRegistryProducerBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    @RegistryName("hot")
+    private MetricRegistry hot;
+
+    @Inject
+    private InjectionPointProducerMethodBean bean;
+
+    @Inject
+    @FooQualifier
+    @Metric(name = TIMER_NAME, absolute = true)
+    private Timer timer;
+
+    @Inject
+    @FooQualifier
+    @Metric(name = TIMER_NAME, absolute = true)
+    private Instance<Timer> instance;
+
+    @Inject
+    @FooQualifier
+    @Metric(name = HISTOGRAM_NAME, absolute = true)
+    private Histogram histogram;
+
+    @Inject
+    @FooQualifier
+    @Metric(name = CLASHING_TIMER_NAME, absolute = true)
+    private Instance<Timer> clashing;
+
+    @Inject
+    @FooQualifier
+    @Metric(name = METER_NAME, absolute = true)
+    private Instance<Meter> meter;
+
+    @Inject
+    @FooQualifier
+    @Metric(name = OTHER_COUNTER_NAME, absolute = true)
+    private Instance<Counter> counter;
+
+    @Test
+    @InSequence(1)
+    public void timerRegisteredOnInjection() {
+        assertThat("Timer is not registered correctly", registry.getTimers(), hasKey(TIMER_NAME));
+        assertThat("Timer is not registered correctly", registry.getTimers().get(TIMER_NAME), is(sameInstance(timer)));
+        assertThat("Producer invocation count is incorrect", bean.getProductions(), is(equalTo(1L)));
+    }
+
+    @Test
+    @InSequence(2)
+    public void timerNotProducedOnLookup() {
+        for (int i = 0; i < 10; i++)
+            assertThat("Timer lookup is incorrect", instance.get(), is(sameInstance(timer)));
+
+        assertThat("Producer invocation count is incorrect", bean.getProductions(), is(equalTo(1L)));
+    }
+
+    @Test
+    @InSequence(3)
+    public void histogramRegisteredInRegistry() {
+        assertThat("Histogram is not registered correctly", hot.getHistograms(), hasKey(HISTOGRAM_NAME));
+        assertThat("Histogram is not registered correctly", hot.getHistograms().get(HISTOGRAM_NAME), is(sameInstance(histogram)));
+        assertThat("Histogram is registered in the default registry", registry.getHistograms(), not(hasKey(HISTOGRAM_NAME)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    @InSequence(4)
+    public void timerNameClash() {
+        registry.timer(CLASHING_TIMER_NAME);
+
+        // The metric registered under the same name has not been produced by the producer method
+        clashing.get();
+    }
+
+    @Test
+    @InSequence(5)
+    public void selfRegisteredMeterProduced() {
+        // The producer registers the meter itself under the injection point name
+        Meter meter = this.meter.get();
+        assertThat("Meter is not registered correctly", registry.getMeters().get(METER_NAME), is(sameInstance(meter)));
+        assertThat("Meter lookup is incorrect", this.meter.get(), is(sameInstance(meter)));
+    }
+
+    @Test
+    @InSequence(6)
+    public void selfRegisteredCounterNotRegisteredTwice() {
+        // The producer registers the counter itself under another name
+        Counter counter = this.counter.get();
+        assertThat("Counter is not registered correctly", registry.getCounters().get(COUNTER_NAME), is(sameInstance(counter)));
+        assertThat("Counter is registered twice", registry.getCounters(), not(hasKey(OTHER_COUNTER_NAME)));
+        assertThat("Counter lookup is incorrect", this.counter.get(), is(sameInstance(counter)));
+    }
+}
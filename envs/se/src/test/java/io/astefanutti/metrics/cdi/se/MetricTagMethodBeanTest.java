@@ -0,0 +1,132 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.MetricRegistry;
+import io.astefanutti.metrics.cdi.MetricTag;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class MetricTagMethodBeanTest {
+
+    private final static String ENUM_TIMER_NAME = MetricRegistry.name(MetricTagMethodBean.class, "enumTaggedMethod");
+
+    private final static String KNOWN_METER_NAME = MetricRegistry.name(MetricTagMethodBean.class, "knownValuesTaggedMethod");
+
+    private final static String LIMITED_TIMER_NAME = MetricRegistry.name(MetricTagMethodBean.class, "limitedTaggedMethod");
+
+    private final static String OVERLOADED_TIMER_NAME = MetricRegistry.name(MetricTagMethodBean.class, "overloadedTaggedMethod");
+
+    private final static String MULTI_COUNTER_NAME = MetricRegistry.name(MetricTagMethodBean.class, "multiTaggedMethod");
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean
+            .addClass(MetricTagMethodBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private MetricTagMethodBean bean;
+
+    @Test
+    public void callEnumTaggedMethod() {
+        bean.enumTaggedMethod(TimeUnit.SECONDS);
+        bean.enumTaggedMethod(TimeUnit.SECONDS);
+        bean.enumTaggedMethod(TimeUnit.DAYS);
+        bean.enumTaggedMethod(null);
+
+        assertThat("Timer count is incorrect", registry.getTimers().get(ENUM_TIMER_NAME).getCount(), is(equalTo(4L)));
+        assertThat("Tagged timer count is incorrect", registry.getTimers().get(MetricRegistry.name(ENUM_TIMER_NAME, "SECONDS")).getCount(), is(equalTo(2L)));
+        assertThat("Tagged timer count is incorrect", registry.getTimers().get(MetricRegistry.name(ENUM_TIMER_NAME, "DAYS")).getCount(), is(equalTo(1L)));
+        assertThat("Tagged timer count is incorrect", registry.getTimers().get(MetricRegistry.name(ENUM_TIMER_NAME, MetricTag.OTHER)).getCount(), is(equalTo(1L)));
+        assertThat("Tagged timer is registered eagerly", registry.getTimers(), not(hasKey(MetricRegistry.name(ENUM_TIMER_NAME, "HOURS"))));
+    }
+
+    @Test
+    public void callKnownValuesTaggedMethod() {
+        bean.knownValuesTaggedMethod("gold");
+        bean.knownValuesTaggedMethod("bronze");
+
+        assertThat("Meter count is incorrect", registry.getMeters().get(KNOWN_METER_NAME).getCount(), is(equalTo(2L)));
+        assertThat("Tagged meter count is incorrect", registry.getMeters().get(MetricRegistry.name(KNOWN_METER_NAME, "gold")).getCount(), is(equalTo(1L)));
+        assertThat("Tagged meter count is incorrect", registry.getMeters().get(MetricRegistry.name(KNOWN_METER_NAME, MetricTag.OTHER)).getCount(), is(equalTo(1L)));
+        assertThat("Unknown value meter is registered", registry.getMeters(), not(hasKey(MetricRegistry.name(KNOWN_METER_NAME, "bronze"))));
+    }
+
+    @Test
+    public void callLimitedTaggedMethod() {
+        for (int customer = 0; customer < 5; customer++)
+            bean.limitedTaggedMethod(null, customer);
+        bean.limitedTaggedMethod(null, 1);
+
+        assertThat("Tagged timer count is incorrect", registry.getTimers().get(MetricRegistry.name(LIMITED_TIMER_NAME, "0")).getCount(), is(equalTo(1L)));
+        assertThat("Tagged timer count is incorrect", registry.getTimers().get(MetricRegistry.name(LIMITED_TIMER_NAME, "1")).getCount(), is(equalTo(2L)));
+        assertThat("Overflow timer count is incorrect", registry.getTimers().get(MetricRegistry.name(LIMITED_TIMER_NAME, MetricTag.OTHER)).getCount(), is(equalTo(3L)));
+        assertThat("Tagged timer exceeds the limit", registry.getTimers(), not(hasKey(MetricRegistry.name(LIMITED_TIMER_NAME, "2"))));
+    }
+
+    @Test
+    public void callOverloadedTaggedMethods() {
+        bean.overloadedTaggedMethod(TimeUnit.SECONDS);
+        bean.overloadedTaggedMethod(null, "gold");
+        bean.overloadedTaggedMethod(null, "bronze");
+
+        assertThat("Timer count is incorrect", registry.getTimers().get(OVERLOADED_TIMER_NAME).getCount(), is(equalTo(3L)));
+        assertThat("Tagged timer count is incorrect", registry.getTimers().get(MetricRegistry.name(OVERLOADED_TIMER_NAME, "SECONDS")).getCount(), is(equalTo(1L)));
+        assertThat("Tagged timer count is incorrect", registry.getTimers().get(MetricRegistry.name(OVERLOADED_TIMER_NAME, "gold")).getCount(), is(equalTo(1L)));
+        assertThat("Overflow timer count is incorrect", registry.getTimers().get(MetricRegistry.name(OVERLOADED_TIMER_NAME, MetricTag.OTHER)).getCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void callMultiTaggedMethod() {
+        // The combinations span many pages of the table of the tagged metrics
+        for (int customer = 0; customer < 100; customer++) {
+            bean.multiTaggedMethod("eu", "customer" + customer, "web");
+            bean.multiTaggedMethod("us", "customer" + customer, "mobile");
+        }
+        bean.multiTaggedMethod("eu", "customer0", "web");
+
+        assertThat("Counter count is incorrect", registry.getCounters().get(MULTI_COUNTER_NAME).getCount(), is(equalTo(201L)));
+        assertThat("Tagged counter count is incorrect", registry.getCounters().get(MetricRegistry.name(MULTI_COUNTER_NAME, "eu", "customer0", "web")).getCount(), is(equalTo(2L)));
+        assertThat("Tagged counter count is incorrect", registry.getCounters().get(MetricRegistry.name(MULTI_COUNTER_NAME, "us", "customer99", "mobile")).getCount(), is(equalTo(1L)));
+        assertThat("Tagged counter is incorrect", registry.getCounters(), not(hasKey(MetricRegistry.name(MULTI_COUNTER_NAME, "us", "customer99", "web"))));
+    }
+}
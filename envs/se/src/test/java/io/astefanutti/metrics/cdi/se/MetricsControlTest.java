@@ -0,0 +1,137 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.annotation.Timed;
+import io.astefanutti.metrics.cdi.MetricsControl;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class MetricsControlTest {
+
+    private final static String TIMER_NAME = MetricRegistry.name(TimedMethodBean.class, "timedMethod");
+
+    private final static AtomicLong TIMER_COUNT = new AtomicLong();
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean
+            .addClass(TimedMethodBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private MetricsControl control;
+
+    @Inject
+    private TimedMethodBean bean;
+
+    @Test
+    @InSequence(1)
+    public void callTimedMethodWhileEnabled() {
+        assertThat("Timer is not registered correctly", registry.getTimers(), hasKey(TIMER_NAME));
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+
+        bean.timedMethod();
+
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(TIMER_COUNT.incrementAndGet())));
+    }
+
+    @Test
+    @InSequence(2)
+    public void callTimedMethodWhileGloballyDisabled() {
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+
+        control.setEnabled(false);
+        bean.timedMethod();
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(TIMER_COUNT.get())));
+
+        control.setEnabled(true);
+        bean.timedMethod();
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(TIMER_COUNT.incrementAndGet())));
+    }
+
+    @Test
+    @InSequence(3)
+    public void callTimedMethodWhileSelectivelyDisabled() throws NoSuchMethodException {
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+
+        control.setAnnotationEnabled(Timed.class, false);
+        bean.timedMethod();
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(TIMER_COUNT.get())));
+        control.setAnnotationEnabled(Timed.class, true);
+
+        control.setBeanEnabled(TimedMethodBean.class, false);
+        bean.timedMethod();
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(TIMER_COUNT.get())));
+        control.setBeanEnabled(TimedMethodBean.class, true);
+
+        control.setMethodEnabled(TimedMethodBean.class.getMethod("timedMethod"), false);
+        bean.timedMethod();
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(TIMER_COUNT.get())));
+        control.setMethodEnabled(TimedMethodBean.class.getMethod("timedMethod"), true);
+
+        bean.timedMethod();
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(TIMER_COUNT.incrementAndGet())));
+    }
+
+    @Test
+    @InSequence(4)
+    public void callTimedMethodWhileDisabledViaJmx() throws Exception {
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("io.astefanutti.metrics.cdi:type=MetricsControl");
+        String target = TimedMethodBean.class.getName() + "#timedMethod";
+
+        server.invoke(name, "disable", new Object[]{target}, new String[]{String.class.getName()});
+        assertThat("Disabled targets are incorrect", (String[]) server.getAttribute(name, "Disabled"), is(arrayContaining(target)));
+        bean.timedMethod();
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(TIMER_COUNT.get())));
+
+        server.invoke(name, "enable", new Object[]{target}, new String[]{String.class.getName()});
+        assertThat("Disabled targets are incorrect", (String[]) server.getAttribute(name, "Disabled"), is(emptyArray()));
+        bean.timedMethod();
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(TIMER_COUNT.incrementAndGet())));
+    }
+}
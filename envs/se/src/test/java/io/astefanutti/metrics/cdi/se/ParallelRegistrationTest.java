@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.annotation.Metric;
+import io.astefanutti.metrics.cdi.MetricsConfiguration;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class ParallelRegistrationTest {
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test beans
+            .addClasses(MetricProducerFieldBean.class, MetricSetProducerBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    private static volatile Thread deployment;
+
+    static void configuration(@Observes MetricsConfiguration configuration) {
+        deployment = Thread.currentThread();
+        configuration.useParallelRegistration(true);
+    }
+
+    @Produces
+    @Metric(name = "contextualCounter", absolute = true)
+    static Counter contextualCounter() {
+        // Stands for the producers that depend on the contexts of the deployment thread, like the naming context
+        if (Thread.currentThread() != deployment)
+            throw new IllegalStateException("Not invoked from the deployment thread");
+        return new Counter();
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private MetricSetProducerBean bean;
+
+    @Test
+    public void producedMetricsRegistered() {
+        assertThat("Metrics are not registered correctly", registry.getMetrics().keySet(),
+            containsInAnyOrder("counter1", "counter2", "contextualCounter", "ratioGauge", MetricRegistry.name(MetricProducerFieldBean.class, "histogram"),
+                "pool.connections", "pool.size", "pool.stats.idle"));
+        assertThat("Counter is not registered correctly", registry.getCounters().get("pool.connections"), is(sameInstance(bean.getConnections())));
+        assertThat("Gauge has been evaluated at registration", bean.getEvaluations(), is(equalTo(0L)));
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.astefanutti.metrics.cdi.DoubleGauge;
+import io.astefanutti.metrics.cdi.LongGauge;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class PrimitiveGaugeMethodBeanTest {
+
+    private final static String LONG_GAUGE_NAME = MetricRegistry.name(PrimitiveGaugeMethodBean.class, "longGaugeMethod");
+
+    private final static String DOUBLE_GAUGE_NAME = MetricRegistry.name(PrimitiveGaugeMethodBean.class, "doubleGaugeMethod");
+
+    private final static String PRIVATE_LONG_GAUGE_NAME = MetricRegistry.name(PrimitiveGaugeMethodBean.class, "privateLongGaugeMethod");
+
+    private final static String PRIVATE_DOUBLE_GAUGE_NAME = MetricRegistry.name(PrimitiveGaugeMethodBean.class, "privateDoubleGaugeMethod");
+
+    @Deployment
+    static Archive<?> createTestArchive() throws ClassNotFoundException {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean and its generated gauge accessor
+            .addClasses(PrimitiveGaugeMethodBean.class, Class.forName(PrimitiveGaugeMethodBean.class.getName() + "$MetricsGauges"))
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private PrimitiveGaugeMethodBean bean;
+
+    @Before
+    public void instantiateApplicationScopedBean() {
+        // Let's trigger the instantiation of the application scoped bean explicitly
+        // as only a proxy gets injected otherwise
+        bean.getLongGauge();
+    }
+
+    @Test
+    @InSequence(1)
+    public void primitiveGaugesRegistered() {
+        assertThat("Gauge is not registered correctly", registry.getGauges().get(LONG_GAUGE_NAME), is(instanceOf(LongGauge.class)));
+        assertThat("Gauge is not registered correctly", registry.getGauges().get(DOUBLE_GAUGE_NAME), is(instanceOf(DoubleGauge.class)));
+        assertThat("Gauge is not registered correctly", registry.getGauges().get(PRIVATE_LONG_GAUGE_NAME), is(instanceOf(LongGauge.class)));
+        assertThat("Gauge is not registered correctly", registry.getGauges().get(PRIVATE_DOUBLE_GAUGE_NAME), is(instanceOf(DoubleGauge.class)));
+    }
+
+    @Test
+    @InSequence(2)
+    public void callGaugesAfterSetterCall() {
+        long longValue = 1L + Math.round(Math.random() * (Long.MAX_VALUE - 1L));
+        double doubleValue = Math.random();
+        bean.setLongGauge(longValue);
+        bean.setDoubleGauge(doubleValue);
+
+        assertThat("Gauge value is incorrect", ((LongGauge) registry.getGauges().get(LONG_GAUGE_NAME)).getAsLong(), is(equalTo(longValue)));
+        assertThat("Gauge value is incorrect", ((DoubleGauge) registry.getGauges().get(DOUBLE_GAUGE_NAME)).getAsDouble(), is(equalTo(doubleValue)));
+        assertThat("Gauge value is incorrect", ((LongGauge) registry.getGauges().get(PRIVATE_LONG_GAUGE_NAME)).getAsLong(), is(equalTo(longValue)));
+        assertThat("Gauge value is incorrect", ((DoubleGauge) registry.getGauges().get(PRIVATE_DOUBLE_GAUGE_NAME)).getAsDouble(), is(equalTo(doubleValue)));
+
+        // The boxed values are still available to the reporters that are not aware of the primitive gauges
+        @SuppressWarnings("unchecked")
+        Gauge<Long> gauge = registry.getGauges().get(LONG_GAUGE_NAME);
+        assertThat("Gauge value is incorrect", gauge.getValue(), is(equalTo(longValue)));
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class RecordedTimedMethodBeanTest {
+
+    private final static String TIMER_NAME = MetricRegistry.name(RecordedTimedMethodBean.class, "recordedTimedMethod");
+
+    private final static String HISTOGRAM_NAME = MetricRegistry.name(RecordedTimedMethodBean.class, "recordedHistogram");
+
+    private final static int THREADS = 8;
+
+    private final static int CALLS = 1000;
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean
+            .addClass(RecordedTimedMethodBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private RecordedTimedMethodBean bean;
+
+    @Test
+    @InSequence(1)
+    public void recordedTimedMethodNotCalledYet() {
+        assertThat("Timer is not registered correctly", registry.getTimers(), hasKey(TIMER_NAME));
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+
+        // Make sure that the timer hasn't been called yet
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(0L)));
+        assertThat("Timer snapshot size is incorrect", timer.getSnapshot().size(), is(equalTo(0)));
+    }
+
+    @Test
+    @InSequence(2)
+    public void callRecordedTimedMethodConcurrently() throws Exception {
+        assertThat("Timer is not registered correctly", registry.getTimers(), hasKey(TIMER_NAME));
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++)
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < CALLS; i++)
+                            bean.recordedTimedMethod();
+                        return null;
+                    }
+                });
+
+            // Take snapshots concurrently to exercise the interval swapping
+            List<Future<Void>> futures = executor.invokeAll(tasks);
+            for (Future<Void> future : futures) {
+                timer.getSnapshot();
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Make sure that all the calls have been recorded
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo((long) THREADS * CALLS)));
+        assertThat("Timer snapshot size is incorrect", timer.getSnapshot().size(), is(equalTo(THREADS * CALLS)));
+    }
+
+    @Test
+    @InSequence(3)
+    public void updateRecordedHistogram() {
+        assertThat("Histogram is not registered correctly", registry.getHistograms(), hasKey(HISTOGRAM_NAME));
+        Histogram histogram = registry.getHistograms().get(HISTOGRAM_NAME);
+
+        for (long value = 1; value <= 1000; value++)
+            bean.update(value);
+
+        Snapshot snapshot = histogram.getSnapshot();
+        assertThat("Histogram count is incorrect", histogram.getCount(), is(equalTo(1000L)));
+        // The values are weighted by their counts
+        assertThat("Histogram values are incorrect", snapshot.getValues().length, is(equalTo(snapshot.size())));
+        assertThat("Histogram minimum is incorrect", snapshot.getMin(), is(equalTo(1L)));
+        // The relative precision is better than 3%
+        assertThat("Histogram median is incorrect", snapshot.getMedian(), is(closeTo(500.0, 15.0)));
+        assertThat("Histogram 99th percentile is incorrect", snapshot.get99thPercentile(), is(closeTo(990.0, 30.0)));
+        assertThat("Histogram maximum is incorrect", (double) snapshot.getMax(), is(closeTo(1000.0, 30.0)));
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class RollingWindowTimedMethodBeanTest {
+
+    private final static String TIMER_NAME = MetricRegistry.name(RollingWindowTimedMethodBean.class, "rollingWindowTimedMethod");
+
+    private final static String HISTOGRAM_NAME = MetricRegistry.name(RollingWindowTimedMethodBean.class, "rollingWindowHistogram");
+
+    private final static String CUMULATIVE_TIMER_NAME = MetricRegistry.name(TIMER_NAME, "cumulative");
+
+    private final static String CUMULATIVE_HISTOGRAM_NAME = MetricRegistry.name(HISTOGRAM_NAME, "cumulative");
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean
+            .addClass(RollingWindowTimedMethodBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private RollingWindowTimedMethodBean bean;
+
+    @Test
+    @InSequence(1)
+    public void rollingWindowTimedMethodNotCalledYet() {
+        assertThat("Timer is not registered correctly", registry.getTimers(), hasKey(TIMER_NAME));
+        assertThat("Cumulative histogram is not registered correctly", registry.getHistograms(), hasKey(CUMULATIVE_TIMER_NAME));
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+
+        // Make sure that the timer hasn't been called yet
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(0L)));
+        assertThat("Timer snapshot size is incorrect", timer.getSnapshot().size(), is(equalTo(0)));
+    }
+
+    @Test
+    @InSequence(2)
+    public void callRollingWindowTimedMethodAndUpdateHistogram() {
+        bean.rollingWindowTimedMethod();
+        for (long value = 1; value <= 1000; value++)
+            bean.update(value);
+
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(1L)));
+        assertThat("Timer snapshot size is incorrect", timer.getSnapshot().size(), is(equalTo(1)));
+        assertThat("Cumulative timer count is incorrect", registry.getHistograms().get(CUMULATIVE_TIMER_NAME).getCount(), is(equalTo(1L)));
+
+        assertThat("Histogram is not registered correctly", registry.getHistograms(), hasKey(HISTOGRAM_NAME));
+        Snapshot snapshot = registry.getHistograms().get(HISTOGRAM_NAME).getSnapshot();
+        assertThat("Histogram snapshot size is incorrect", snapshot.size(), is(equalTo(1000)));
+        // The relative precision is better than 3%
+        assertThat("Histogram median is incorrect", snapshot.getMedian(), is(closeTo(500.0, 15.0)));
+        assertThat("Histogram 99th percentile is incorrect", snapshot.get99thPercentile(), is(closeTo(990.0, 30.0)));
+    }
+
+    @Test
+    @InSequence(3)
+    public void rollingWindowExpired() throws InterruptedException {
+        // Let the window roll over all its intervals
+        TimeUnit.MILLISECONDS.sleep(1100L);
+
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+        // The count is not windowed
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(1L)));
+        assertThat("Timer snapshot size is incorrect", timer.getSnapshot().size(), is(equalTo(0)));
+        assertThat("Histogram snapshot size is incorrect", registry.getHistograms().get(HISTOGRAM_NAME).getSnapshot().size(), is(equalTo(0)));
+
+        // The values recorded since the creation are still exported
+        Histogram cumulative = registry.getHistograms().get(CUMULATIVE_HISTOGRAM_NAME);
+        assertThat("Cumulative histogram count is incorrect", cumulative.getCount(), is(equalTo(1000L)));
+        assertThat("Cumulative histogram maximum is incorrect", (double) cumulative.getSnapshot().getMax(), is(closeTo(1000.0, 30.0)));
+        assertThat("Cumulative timer count is incorrect", registry.getHistograms().get(CUMULATIVE_TIMER_NAME).getCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    @InSequence(4)
+    public void cumulativeHistogramRemovedWithMetric() {
+        // More values than the snapshots return
+        for (long value = 1; value <= 20000; value++)
+            bean.update(value);
+
+        assertThat("Cumulative histogram count is incorrect", registry.getHistograms().get(CUMULATIVE_HISTOGRAM_NAME).getCount(), is(equalTo(21000L)));
+
+        registry.remove(HISTOGRAM_NAME);
+
+        assertThat("Cumulative histogram is not removed", registry.getHistograms(), not(hasKey(CUMULATIVE_HISTOGRAM_NAME)));
+    }
+}
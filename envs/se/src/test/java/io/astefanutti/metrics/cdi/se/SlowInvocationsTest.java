@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import io.astefanutti.metrics.cdi.MetricsConfiguration;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import io.astefanutti.metrics.cdi.SlowInvocation;
+import io.astefanutti.metrics.cdi.SlowInvocations;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class SlowInvocationsTest {
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean
+            .addClass(SlowTimedMethodBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    static void configuration(@Observes MetricsConfiguration configuration) {
+        configuration.slowInvocationThreshold(20, TimeUnit.MILLISECONDS);
+    }
+
+    @Inject
+    private SlowInvocations invocations;
+
+    @Inject
+    private SlowTimedMethodBean bean;
+
+    @Test
+    @InSequence(1)
+    public void captureSlowInvocation() throws InterruptedException {
+        assertThat("Threshold is incorrect", invocations.getThreshold(TimeUnit.MILLISECONDS), is(equalTo(20L)));
+
+        bean.slowTimedMethod("fast", 0L);
+        bean.slowTimedMethod("slow", 30L);
+
+        List<SlowInvocation> slow = invocations.getInvocations();
+        assertThat("Slow invocations are incorrect", slow, hasSize(1));
+        assertThat("Slow invocation bean is incorrect", slow.get(0).getBean(), is(equalTo(SlowTimedMethodBean.class.getName())));
+        assertThat("Slow invocation method is incorrect", slow.get(0).getMethod(), is(equalTo("slowTimedMethod")));
+        assertThat("Slow invocation arguments are incorrect", slow.get(0).getArguments(), is(equalTo("String, Long")));
+        assertThat("Slow invocation thread is incorrect", slow.get(0).getThread(), is(equalTo(Thread.currentThread().getName())));
+        assertThat("Slow invocation duration is incorrect", slow.get(0).getDuration(), is(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(30L))));
+    }
+
+    @Test
+    @InSequence(2)
+    public void slowInvocationsExposedViaJmx() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = server.queryNames(new ObjectName("io.astefanutti.metrics.cdi:type=SlowInvocations,*"), null).iterator().next();
+
+        assertThat("Threshold attribute is incorrect", (Long) server.getAttribute(name, "ThresholdMillis"), is(equalTo(20L)));
+        assertThat("Invocations attribute is incorrect", (CompositeData[]) server.getAttribute(name, "Invocations"), is(arrayWithSize(1)));
+    }
+
+    @Test
+    @InSequence(3)
+    public void disableCapture() throws InterruptedException {
+        invocations.clear();
+        invocations.setThreshold(0, TimeUnit.MILLISECONDS);
+
+        bean.slowTimedMethod("slow", 30L);
+
+        assertThat("Slow invocations are incorrect", invocations.getInvocations(), is(empty()));
+    }
+}
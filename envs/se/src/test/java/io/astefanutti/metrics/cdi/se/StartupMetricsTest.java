@@ -0,0 +1,78 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.astefanutti.metrics.cdi.MetricsConfiguration;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class StartupMetricsTest {
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test beans
+            .addClasses(MetricProducerFieldBean.class, TimedMethodBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    static void configuration(@Observes MetricsConfiguration configuration) {
+        configuration.useStartupMetrics(true);
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Test
+    public void startupMetricsRegistered() {
+        Map<String, Gauge> gauges = registry.getGauges();
+        for (String phase : new String[] {"bindings", "decorations", "producers", "registration"})
+            assertThat("Gauges are not registered correctly", gauges, allOf(
+                hasKey(MetricRegistry.name("metrics.cdi.startup", phase, "time")),
+                hasKey(MetricRegistry.name("metrics.cdi.startup", phase, "count"))));
+
+        assertThat("Bindings count is incorrect", gauges.get("metrics.cdi.startup.bindings.count").getValue(), is(equalTo((Object) 4L)));
+        assertThat("Decorations count is incorrect", (Long) gauges.get("metrics.cdi.startup.decorations.count").getValue(), is(greaterThanOrEqualTo(1L)));
+        assertThat("Producers count is incorrect", (Long) gauges.get("metrics.cdi.startup.producers.count").getValue(), is(greaterThanOrEqualTo(4L)));
+        assertThat("Registration count is incorrect", (Long) gauges.get("metrics.cdi.startup.registration.count").getValue(), is(greaterThanOrEqualTo(4L)));
+        assertThat("Registration time is incorrect", (Long) gauges.get("metrics.cdi.startup.registration.time").getValue(), is(greaterThan(0L)));
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.se;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import io.astefanutti.metrics.cdi.MetricsExtension;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import java.lang.management.ManagementFactory;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(Arquillian.class)
+public class ThreadUsageTimedMethodBeanTest {
+
+    private final static String TIMER_NAME = MetricRegistry.name(ThreadUsageTimedMethodBean.class, "threadUsageTimedMethod");
+
+    private final static String CPU_NAME = MetricRegistry.name(TIMER_NAME, "cpu");
+
+    private final static String ALLOCATED_NAME = MetricRegistry.name(TIMER_NAME, "allocated");
+
+    private final static String UNSAMPLED_NAME = MetricRegistry.name(ThreadUsageTimedMethodBean.class, "unsampledTimedMethod");
+
+    private final static int SIZE = 1024 * 1024;
+
+    @Deployment
+    static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(JavaArchive.class)
+            // Test bean
+            .addClass(ThreadUsageTimedMethodBean.class)
+            // Metrics CDI extension
+            .addPackage(MetricsExtension.class.getPackage())
+            // Bean archive deployment descriptor
+            .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
+    }
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private ThreadUsageTimedMethodBean bean;
+
+    @Test
+    public void threadUsageHistogramsRegistered() {
+        assertThat("Histograms are not registered correctly", registry.getHistograms(), allOf(hasKey(CPU_NAME), hasKey(ALLOCATED_NAME)));
+    }
+
+    @Test
+    public void callThreadUsageTimedMethod() {
+        assumeTrue(ManagementFactory.getThreadMXBean().isCurrentThreadCpuTimeSupported());
+
+        bean.threadUsageTimedMethod(SIZE);
+
+        assertThat("Timer count is incorrect", registry.getTimers().get(TIMER_NAME).getCount(), is(equalTo(1L)));
+        assertThat("CPU histogram count is incorrect", registry.getHistograms().get(CPU_NAME).getCount(), is(equalTo(1L)));
+        Histogram allocated = registry.getHistograms().get(ALLOCATED_NAME);
+        if (allocated.getCount() > 0)
+            assertThat("Allocated bytes are incorrect", allocated.getSnapshot().getMax(), is(greaterThanOrEqualTo(8L * SIZE)));
+    }
+
+    @Test
+    public void callUnsampledTimedMethod() {
+        bean.unsampledTimedMethod();
+
+        assertThat("Timer count is incorrect", registry.getTimers().get(UNSAMPLED_NAME).getCount(), is(equalTo(1L)));
+        assertThat("CPU histogram count is incorrect", registry.getHistograms().get(MetricRegistry.name(UNSAMPLED_NAME, "cpu")).getCount(), is(equalTo(0L)));
+    }
+}
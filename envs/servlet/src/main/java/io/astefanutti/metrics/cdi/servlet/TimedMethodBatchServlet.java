@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.servlet;
+
+import com.codahale.metrics.MetricRegistry;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+public class TimedMethodBatchServlet extends HttpServlet {
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private TimedMethodBean bean;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        int count = Integer.parseInt(req.getParameter("count"));
+        for (int i = 0; i < count; i++)
+            bean.timedMethod();
+        // Returns the timer count as seen while the request is processed
+        resp.getWriter().append(String.valueOf(registry.timer(MetricRegistry.name(TimedMethodBean.class, "timedMethod")).getCount()));
+    }
+}
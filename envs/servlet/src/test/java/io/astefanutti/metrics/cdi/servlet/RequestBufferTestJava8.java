@@ -0,0 +1,108 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.servlet;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.astefanutti.metrics.cdi.MetricsConfiguration;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.container.test.api.RunAsClient;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.arquillian.test.api.ArquillianResource;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.descriptor.api.Descriptors;
+import org.jboss.shrinkwrap.descriptor.api.webapp30.WebAppDescriptor;
+import org.jboss.weld.environment.servlet.Listener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.event.Observes;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class RequestBufferTestJava8 {
+
+    private final static String TIMER_NAME = MetricRegistry.name(TimedMethodBean.class, "timedMethod");
+
+    private final static long CALL_COUNT = 1L + Math.round(Math.random() * 10);
+
+    @Deployment
+    public static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(WebArchive.class)
+            .addClass(TimedMethodBean.class)
+            .addClass(TimedMethodBatchServlet.class)
+            .addAsWebInfResource(EmptyAsset.INSTANCE, ArchivePaths.create("beans.xml"))
+            // Metrics CDI deployment properties
+            .addAsResource(new StringAsset("metrics.cdi.request.buffer=true"), "META-INF/metrics-cdi.properties")
+            .setWebXML(new StringAsset(Descriptors.create(WebAppDescriptor.class)
+                .version("3.1")
+                .createServlet()
+                    .servletClass(TimedMethodBatchServlet.class.getName())
+                    .servletName("TimedMethodBatch").up()
+                .createServletMapping()
+                    .servletName("TimedMethodBatch")
+                    .urlPattern("/timedMethodBatch").up()
+                .createListener()
+                    .listenerClass(Listener.class.getName()).up()
+                .exportAsString()));
+    }
+
+    static void configuration(@Observes MetricsConfiguration configuration) {
+        configuration.useRequestBuffer(true);
+    }
+
+    @Test
+    @RunAsClient
+    @InSequence(1)
+    public void callTimedMethodBatch(@ArquillianResource URL url) throws IOException {
+        // The timer updates are only flushed once the request completes
+        assertThat("Timer count is incorrect", readStreamAndClose(new URL(url, "timedMethodBatch?count=" + CALL_COUNT).openStream()), is(equalTo("0")));
+    }
+
+    @Test
+    @InSequence(2)
+    public void timedMethodBatchFlushed(MetricRegistry registry) {
+        assertThat("Timer is not registered correctly", registry.getTimers(), hasKey(TIMER_NAME));
+        Timer timer = registry.getTimers().get(TIMER_NAME);
+
+        assertThat("Timer count is incorrect", timer.getCount(), is(equalTo(CALL_COUNT)));
+    }
+
+    private String readStreamAndClose(InputStream is) throws IOException {
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+            int read;
+            while((read = is.read()) != -1)
+                os.write(read);
+            return os.toString();
+        } finally {
+            is.close();
+        }
+    }
+}
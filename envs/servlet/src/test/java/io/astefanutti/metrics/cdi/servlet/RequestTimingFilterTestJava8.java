@@ -0,0 +1,103 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.servlet;
+
+import com.codahale.metrics.MetricRegistry;
+import io.astefanutti.metrics.cdi.web.RequestTimingFilter;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.container.test.api.RunAsClient;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.arquillian.test.api.ArquillianResource;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.descriptor.api.Descriptors;
+import org.jboss.shrinkwrap.descriptor.api.webapp30.WebAppDescriptor;
+import org.jboss.weld.environment.servlet.Listener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class RequestTimingFilterTestJava8 {
+
+    private final static String ITEMS_TIMER_NAME = MetricRegistry.name(RequestTimingFilter.PREFIX, "GET /items/{id}", "2xx");
+
+    private final static long CALL_COUNT = 1L + Math.round(Math.random() * 10);
+
+    @Deployment
+    public static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(WebArchive.class)
+            .addClass(TimedMethodBean.class)
+            .addClass(TimedMethodServlet.class)
+            .addAsWebInfResource(EmptyAsset.INSTANCE, ArchivePaths.create("beans.xml"))
+            .setWebXML(new StringAsset(Descriptors.create(WebAppDescriptor.class)
+                .version("3.1")
+                .createServlet()
+                    .servletClass(TimedMethodServlet.class.getName())
+                    .servletName("TimedMethod").up()
+                .createServletMapping()
+                    .servletName("TimedMethod")
+                    .urlPattern("/items/*").up()
+                .createListener()
+                    .listenerClass(Listener.class.getName()).up()
+                .exportAsString()));
+    }
+
+    @Test
+    @RunAsClient
+    @InSequence(1)
+    public void callItems(@ArquillianResource URL url) throws IOException {
+        for (int i = 0; i < CALL_COUNT; i++)
+            readStreamAndClose(new URL(url, "items/" + i).openStream());
+        // Path parameters are not part of the route template
+        readStreamAndClose(new URL(url, "items/0;jsessionid=" + Long.toHexString(Double.doubleToLongBits(Math.random()))).openStream());
+    }
+
+    @Test
+    @InSequence(2)
+    public void requestsTimedPerRouteTemplate(MetricRegistry registry) {
+        assertThat("Timer is not registered correctly", registry.getTimers(), hasKey(ITEMS_TIMER_NAME));
+        assertThat("Timer count is incorrect", registry.getTimers().get(ITEMS_TIMER_NAME).getCount(), is(equalTo(CALL_COUNT + 1)));
+        assertThat("Timer is registered for raw URL", registry.getTimers(), not(hasKey(MetricRegistry.name(RequestTimingFilter.PREFIX, "GET /items/0", "2xx"))));
+
+        assertThat("Bytes meter count is incorrect", registry.getMeters().get(MetricRegistry.name(RequestTimingFilter.PREFIX, "bytes")).getCount(), is(greaterThan(0L)));
+        // The in-container test execution is itself a request in flight
+        assertThat("Active counter count is incorrect", registry.getCounters().get(MetricRegistry.name(RequestTimingFilter.PREFIX, "active")).getCount(), is(equalTo(1L)));
+    }
+
+    private void readStreamAndClose(InputStream is) throws IOException {
+        try {
+            while (is.read() != -1);
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.servlet;
+
+import io.astefanutti.metrics.cdi.MetricsConfiguration;
+import io.astefanutti.metrics.cdi.web.SlowInvocationsInitializer;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.container.test.api.RunAsClient;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.test.api.ArquillianResource;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.descriptor.api.Descriptors;
+import org.jboss.shrinkwrap.descriptor.api.webapp30.WebAppDescriptor;
+import org.jboss.weld.environment.servlet.Listener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.event.Observes;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Arquillian.class)
+public class SlowInvocationsServletTestJava8 {
+
+    @Deployment
+    public static Archive<?> createTestArchive() {
+        return ShrinkWrap.create(WebArchive.class)
+            .addClass(TimedMethodBean.class)
+            .addClass(TimedMethodServlet.class)
+            .addAsWebInfResource(EmptyAsset.INSTANCE, ArchivePaths.create("beans.xml"))
+            .setWebXML(new StringAsset(Descriptors.create(WebAppDescriptor.class)
+                .version("3.1")
+                .createContextParam()
+                    .paramName(SlowInvocationsInitializer.MAPPING)
+                    .paramValue("/slow").up()
+                .createServlet()
+                    .servletClass(TimedMethodServlet.class.getName())
+                    .servletName("TimedMethod").up()
+                .createServletMapping()
+                    .servletName("TimedMethod")
+                    .urlPattern("/timedMethod").up()
+                .createListener()
+                    .listenerClass(Listener.class.getName()).up()
+                .exportAsString()));
+    }
+
+    static void configuration(@Observes MetricsConfiguration configuration) {
+        // Capture every invocation
+        configuration.slowInvocationThreshold(1, TimeUnit.NANOSECONDS);
+    }
+
+    @Test
+    @RunAsClient
+    public void slowInvocationsRendered(@ArquillianResource URL url) throws IOException {
+        readStreamAndClose(new URL(url, "timedMethod").openStream());
+
+        String slow = readStreamAndClose(new URL(url, "slow").openStream());
+        assertThat("Slow invocations are incorrect", slow, startsWith("[{"));
+        assertThat("Slow invocations are incorrect", slow, containsString("\"bean\":\"" + TimedMethodBean.class.getName() + "\""));
+        assertThat("Slow invocations are incorrect", slow, containsString("\"method\":\"timedMethod\""));
+    }
+
+    private String readStreamAndClose(InputStream is) throws IOException {
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+            int read;
+            while((read = is.read()) != -1)
+                os.write(read);
+            return os.toString();
+        } finally {
+            is.close();
+        }
+    }
+}
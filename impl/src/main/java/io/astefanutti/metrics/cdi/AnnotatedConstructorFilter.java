@@ -0,0 +1,69 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import javax.enterprise.inject.spi.AnnotatedConstructor;
+import javax.enterprise.inject.spi.AnnotatedParameter;
+import javax.enterprise.inject.spi.AnnotatedType;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.util.List;
+import java.util.Set;
+
+/* package-private */ final class AnnotatedConstructorFilter<X> extends AnnotatedFilter implements AnnotatedConstructor<X> {
+
+    private final AnnotatedConstructor<X> filteredConstructor;
+
+    AnnotatedConstructorFilter(AnnotatedConstructor<X> filteredConstructor, Set<Class<? extends Annotation>> excluded) {
+        super(filteredConstructor, excluded);
+        this.filteredConstructor = filteredConstructor;
+    }
+
+    @Override
+    public Constructor<X> getJavaMember() {
+        return filteredConstructor.getJavaMember();
+    }
+
+    @Override
+    public boolean isStatic() {
+        return filteredConstructor.isStatic();
+    }
+
+    @Override
+    public AnnotatedType<X> getDeclaringType() {
+        return filteredConstructor.getDeclaringType();
+    }
+
+    @Override
+    public List<AnnotatedParameter<X>> getParameters() {
+        return filteredConstructor.getParameters();
+    }
+
+    @Override
+    public String toString() {
+        return filteredConstructor.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return filteredConstructor.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return object == this || filteredConstructor.equals(object);
+    }
+}
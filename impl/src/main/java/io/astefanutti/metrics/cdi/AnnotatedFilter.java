@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import javax.enterprise.inject.spi.Annotated;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/* package-private */ class AnnotatedFilter implements Annotated {
+
+    private final Annotated filtered;
+
+    private final Set<Class<? extends Annotation>> excluded;
+
+    AnnotatedFilter(Annotated filtered, Set<Class<? extends Annotation>> excluded) {
+        this.filtered = filtered;
+        this.excluded = excluded;
+    }
+
+    static boolean hasExcludedAnnotations(Annotated annotated, Set<Class<? extends Annotation>> excluded) {
+        for (Class<? extends Annotation> annotation : excluded)
+            if (annotated.isAnnotationPresent(annotation))
+                return true;
+
+        return false;
+    }
+
+    @Override
+    public Type getBaseType() {
+        return filtered.getBaseType();
+    }
+
+    @Override
+    public Set<Type> getTypeClosure() {
+        return filtered.getTypeClosure();
+    }
+
+    @Override
+    public <T extends Annotation> T getAnnotation(Class<T> annotationType) {
+        if (excluded.contains(annotationType))
+            return null;
+        else
+            return filtered.getAnnotation(annotationType);
+    }
+
+    @Override
+    public Set<Annotation> getAnnotations() {
+        Set<Annotation> annotations = new HashSet<>();
+        for (Annotation annotation : filtered.getAnnotations())
+            if (!excluded.contains(annotation.annotationType()))
+                annotations.add(annotation);
+
+        return Collections.unmodifiableSet(annotations);
+    }
+
+    @Override
+    public boolean isAnnotationPresent(Class<? extends Annotation> annotationType) {
+        return !excluded.contains(annotationType) && filtered.isAnnotationPresent(annotationType);
+    }
+}
@@ -35,7 +35,11 @@ import java.util.Set;
     }
 
     AnnotatedTypeDecorator(AnnotatedType<X> decoratedType, Annotation decoratingAnnotation, Set<AnnotatedMethod<? super X>> decoratedMethods) {
-        super(decoratedType, Collections.singleton(decoratingAnnotation));
+        this(decoratedType, Collections.singleton(decoratingAnnotation), decoratedMethods);
+    }
+
+    AnnotatedTypeDecorator(AnnotatedType<X> decoratedType, Set<Annotation> decoratingAnnotations, Set<AnnotatedMethod<? super X>> decoratedMethods) {
+        super(decoratedType, decoratingAnnotations);
         this.decoratedType = decoratedType;
         this.decoratedMethods = decoratedMethods;
     }
@@ -0,0 +1,67 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import javax.enterprise.inject.spi.AnnotatedConstructor;
+import javax.enterprise.inject.spi.AnnotatedField;
+import javax.enterprise.inject.spi.AnnotatedMethod;
+import javax.enterprise.inject.spi.AnnotatedType;
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/* package-private */ final class AnnotatedTypeFilter<X> extends AnnotatedFilter implements AnnotatedType<X> {
+
+    private final AnnotatedType<X> filteredType;
+
+    private final Set<AnnotatedConstructor<X>> constructors = new HashSet<>();
+
+    private final Set<AnnotatedMethod<? super X>> methods = new HashSet<>();
+
+    AnnotatedTypeFilter(AnnotatedType<X> filteredType, Set<Class<? extends Annotation>> excluded) {
+        super(filteredType, excluded);
+        this.filteredType = filteredType;
+        for (AnnotatedConstructor<X> constructor : filteredType.getConstructors())
+            constructors.add(hasExcludedAnnotations(constructor, excluded) ? new AnnotatedConstructorFilter<>(constructor, excluded) : constructor);
+        for (AnnotatedMethod<? super X> method : filteredType.getMethods())
+            methods.add(filter(method, excluded));
+    }
+
+    @Override
+    public Class<X> getJavaClass() {
+        return filteredType.getJavaClass();
+    }
+
+    @Override
+    public Set<AnnotatedConstructor<X>> getConstructors() {
+        return Collections.unmodifiableSet(constructors);
+    }
+
+    @Override
+    public Set<AnnotatedMethod<? super X>> getMethods() {
+        return Collections.unmodifiableSet(methods);
+    }
+
+    @Override
+    public Set<AnnotatedField<? super X>> getFields() {
+        return filteredType.getFields();
+    }
+
+    private static <T> AnnotatedMethod<T> filter(AnnotatedMethod<T> method, Set<Class<? extends Annotation>> excluded) {
+        return hasExcludedAnnotations(method, excluded) ? new AnnotatedMethodFilter<>(method, excluded) : method;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Clock;
+
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Default;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.enterprise.inject.spi.PassivationCapable;
+import javax.enterprise.util.AnnotationLiteral;
+import javax.inject.Singleton;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/* package-private */ final class ClockBean implements Bean<Clock>, PassivationCapable {
+
+    private final Set<Annotation> qualifiers = new HashSet<>(Arrays.<Annotation>asList(new AnnotationLiteral<Any>(){}, new AnnotationLiteral<Default>(){}));
+
+    private final Set<Type> types = new HashSet<>(Arrays.<Type>asList(Clock.class, Object.class));
+
+    private final MetricsConfigurationEvent configuration;
+
+    ClockBean(MetricsConfigurationEvent configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    public Class<? extends Annotation> getScope() {
+        // Not a normal scope so that the clock reads do not go through a client proxy
+        return Singleton.class;
+    }
+
+    @Override
+    public Set<Annotation> getQualifiers() {
+        return Collections.unmodifiableSet(qualifiers);
+    }
+
+    @Override
+    public Clock create(CreationalContext<Clock> context) {
+        // The configuration event is fired before the beans get instantiated
+        if (configuration.getCoarseClockResolution() > 0)
+            return new CoarseClock(configuration.getCoarseClockResolution(), TimeUnit.NANOSECONDS);
+        else
+            return Clock.defaultClock();
+    }
+
+    @Override
+    public void destroy(Clock instance, CreationalContext<Clock> context) {
+        if (instance instanceof CoarseClock)
+            ((CoarseClock) instance).close();
+        context.release();
+    }
+
+    @Override
+    public Class<Clock> getBeanClass() {
+        return Clock.class;
+    }
+
+    @Override
+    public Set<InjectionPoint> getInjectionPoints() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public String getName() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "Default Metric Clock Bean";
+    }
+
+    @Override
+    public Set<Class<? extends Annotation>> getStereotypes() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<Type> getTypes() {
+        return Collections.unmodifiableSet(types);
+    }
+
+    @Override
+    public boolean isAlternative() {
+        return false;
+    }
+
+    @Override
+    public boolean isNullable() {
+        return false;
+    }
+
+    @Override
+    public String getId() {
+        return getClass().getName();
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Clock;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Clock} whose time is read from fields updated by a background thread at a fixed resolution, instead of
+ * calling {@link System#nanoTime()} and {@link System#currentTimeMillis()} on every read. That suits the workloads
+ * where clock reads dominate the timers cost, e.g. on virtualized hosts, and where a precision of the order of the
+ * resolution is enough, durations shorter than the resolution being possibly recorded as zero.
+ *
+ * The clock of the timers and meters managed by Metrics CDI can be replaced by a coarse clock either with
+ * {@link MetricsConfiguration#useCoarseClock(long, TimeUnit)} or by declaring a {@link Clock} bean, e.g.:
+ * <pre>{@code
+ * @Produces
+ * @Singleton
+ * CoarseClock clock() {
+ *     return new CoarseClock(1, TimeUnit.MILLISECONDS);
+ * }
+ *
+ * void close(@Disposes CoarseClock clock) {
+ *     clock.close();
+ * }
+ * }</pre>
+ */
+public class CoarseClock extends Clock implements Closeable {
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile long tick;
+
+    private volatile long time;
+
+    public CoarseClock(long resolution, TimeUnit unit) {
+        if (resolution <= 0)
+            throw new IllegalArgumentException("Coarse clock resolution must be strictly positive: " + resolution);
+
+        update();
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "metrics-cdi-coarse-clock");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                update();
+            }
+        }, resolution, resolution, unit);
+    }
+
+    @Override
+    public long getTick() {
+        return tick;
+    }
+
+    @Override
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Stops the background thread updating the clock.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void update() {
+        tick = System.nanoTime();
+        time = System.currentTimeMillis();
+    }
+}
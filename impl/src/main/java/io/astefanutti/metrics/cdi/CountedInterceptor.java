@@ -38,15 +38,21 @@ import javax.interceptor.AroundTimeout;
 
     private final Bean<?> bean;
 
-    private final MetricRegistry registry;
-
     private final MetricResolver resolver;
 
+    private final MetricTags tags;
+
+    private final MetricsSwitch control;
+
+    private final RequestBuffers buffers;
+
     @Inject
-    private CountedInterceptor(@Intercepted Bean<?> bean, MetricRegistry registry, MetricResolver resolver) {
+    private CountedInterceptor(@Intercepted Bean<?> bean, MetricResolver resolver, MetricTags tags, MetricsExtension extension) {
         this.bean = bean;
-        this.registry = registry;
         this.resolver = resolver;
+        this.tags = tags;
+        this.control = extension.getControl();
+        this.buffers = extension.getRequestBuffers();
     }
 
     @AroundConstruct
@@ -65,17 +71,39 @@ import javax.interceptor.AroundTimeout;
     }
 
     private <E extends Member & AnnotatedElement> Object countedCallable(InvocationContext context, E element) throws Exception {
-        MetricResolver.Of<Counted> counted = resolver.counted(bean.getBeanClass(), element);
+        if (!control.isEnabled(bean.getBeanClass(), element, Counted.class))
+            return context.proceed();
+
+        MetricResolver.Plan plan = resolver.plan(bean.getBeanClass(), element);
+        MetricResolver.Of<Counted> counted = plan.counted();
+        MetricRegistry registry = plan.registry();
         Counter counter = (Counter) registry.getMetrics().get(counted.metricName());
         if (counter == null)
             throw new IllegalStateException("No counter with name [" + counted.metricName() + "] found in registry [" + registry + "]");
 
+        Counter tagged = tags.counter(registry, element, counted.metricName(), context.getParameters());
+        if (counted.metricAnnotation().monotonic()) {
+            // Only monotonic counters can be buffered as the others count the invocations in flight
+            RequestBuffer buffer = buffers.current();
+            if (buffer != null) {
+                buffer.inc(counter);
+                if (tagged != null)
+                    buffer.inc(tagged);
+                return context.proceed();
+            }
+        }
+
         counter.inc();
+        if (tagged != null)
+            tagged.inc();
         try {
             return context.proceed();
         } finally {
-            if (!counted.metricAnnotation().monotonic())
+            if (!counted.metricAnnotation().monotonic()) {
                 counter.dec();
+                if (tagged != null)
+                    tagged.dec();
+            }
         }
     }
 }
@@ -0,0 +1,176 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Counting;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricRegistryListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Provides delta snapshots of the Metrics registry resolved for the CDI application.
+ *
+ * A delta snapshot only contains the metrics that changed since the previous snapshot taken for the same consumer,
+ * so that reporters can skip the metrics that remained idle in between. The count of {@link Counting} metrics,
+ * i.e. counters, histograms, meters and timers, is used as a version stamp to detect changes. Metrics that
+ * do not have a count, like gauges, are always considered changed.
+ *
+ * Consumers are identified by name and each one maintains its own version stamps so that different reporters can
+ * take delta snapshots independently, e.g.:
+ * <pre>{@code
+ * GraphiteReporter.forRegistry(registry).filter(snapshots.filter("graphite")).build(graphite);
+ * }</pre>
+ */
+@ApplicationScoped
+public class DeltaSnapshots {
+
+    private static final long NO_STAMP = Long.MIN_VALUE;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, long[]>> consumers = new ConcurrentHashMap<>();
+
+    private final MetricRegistryListener listener = new RemovedMetricListener();
+
+    @Inject
+    private MetricRegistry registry;
+
+    @PostConstruct
+    private void addListener() {
+        registry.addListener(listener);
+    }
+
+    @PreDestroy
+    private void removeListener() {
+        registry.removeListener(listener);
+    }
+
+    /**
+     * Returns the metrics that changed since the previous snapshot taken for the given consumer and
+     * records their current version stamps for that consumer. All the metrics are returned for the first snapshot.
+     *
+     * @param consumer the name of the consumer
+     * @return the metrics that changed since the previous snapshot, sorted by name
+     */
+    public SortedMap<String, Metric> snapshot(String consumer) {
+        ConcurrentMap<String, long[]> stamps = stampsOf(consumer);
+        SortedMap<String, Metric> metrics = new TreeMap<>();
+        for (Map.Entry<String, Metric> metric : registry.getMetrics().entrySet())
+            if (hasChanged(stamps, metric.getKey(), metric.getValue()))
+                metrics.put(metric.getKey(), metric.getValue());
+
+        return Collections.unmodifiableSortedMap(metrics);
+    }
+
+    /**
+     * Returns a {@link MetricFilter} that only matches the metrics that changed since they were last matched
+     * for the given consumer. That filter can be used to configure the Metrics reporters.
+     *
+     * @param consumer the name of the consumer
+     * @return the filter matching the metrics that changed for the given consumer
+     */
+    public MetricFilter filter(String consumer) {
+        final ConcurrentMap<String, long[]> stamps = stampsOf(consumer);
+        return new MetricFilter() {
+            @Override
+            public boolean matches(String name, Metric metric) {
+                return hasChanged(stamps, name, metric);
+            }
+        };
+    }
+
+    /**
+     * Discards the version stamps recorded for the given consumer so that its next snapshot contains all the metrics.
+     *
+     * @param consumer the name of the consumer
+     */
+    public void reset(String consumer) {
+        consumers.remove(consumer);
+    }
+
+    private ConcurrentMap<String, long[]> stampsOf(String consumer) {
+        ConcurrentMap<String, long[]> stamps = consumers.get(consumer);
+        if (stamps == null) {
+            ConcurrentMap<String, long[]> existing = consumers.putIfAbsent(consumer, stamps = new ConcurrentHashMap<>());
+            if (existing != null)
+                stamps = existing;
+        }
+        return stamps;
+    }
+
+    private static boolean hasChanged(ConcurrentMap<String, long[]> stamps, String name, Metric metric) {
+        long stamp = stampOf(metric);
+        if (stamp == NO_STAMP)
+            return true;
+
+        // Mutable stamps avoid boxing on every snapshot for the metrics already seen
+        long[] previous = stamps.get(name);
+        if (previous == null) {
+            stamps.put(name, new long[]{stamp});
+            return true;
+        }
+        if (previous[0] == stamp)
+            return false;
+
+        previous[0] = stamp;
+        return true;
+    }
+
+    private static long stampOf(Metric metric) {
+        if (metric instanceof Counting)
+            return ((Counting) metric).getCount();
+        else
+            return NO_STAMP;
+    }
+
+    private final class RemovedMetricListener extends MetricRegistryListener.Base {
+
+        @Override
+        public void onCounterRemoved(String name) {
+            removed(name);
+        }
+
+        @Override
+        public void onHistogramRemoved(String name) {
+            removed(name);
+        }
+
+        @Override
+        public void onMeterRemoved(String name) {
+            removed(name);
+        }
+
+        @Override
+        public void onTimerRemoved(String name) {
+            removed(name);
+        }
+
+        private void removed(String name) {
+            for (ConcurrentMap<String, long[]> stamps : consumers.values())
+                stamps.remove(name);
+        }
+    }
+}
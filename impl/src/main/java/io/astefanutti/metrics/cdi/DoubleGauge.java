@@ -0,0 +1,35 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Gauge;
+
+/**
+ * A {@link Gauge} whose value can be read as a primitive {@code double} without boxing.
+ *
+ * Metrics CDI registers the {@link com.codahale.metrics.annotation.Gauge} and {@link com.codahale.metrics.annotation.CachedGauge}
+ * methods returning a {@code double} as {@code DoubleGauge} instances, so that reporters can read them without allocation, e.g.:
+ * <pre>{@code
+ * double value = gauge instanceof DoubleGauge ? ((DoubleGauge) gauge).getAsDouble() : ((Number) gauge.getValue()).doubleValue();
+ * }</pre>
+ */
+public interface DoubleGauge extends Gauge<Double> {
+
+    /**
+     * @return the value of the gauge
+     */
+    double getAsDouble();
+}
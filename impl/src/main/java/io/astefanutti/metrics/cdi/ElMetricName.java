@@ -65,6 +65,11 @@ import java.util.regex.Pattern;
             return evaluateCompositeExpression(matcher);
     }
 
+    @Override
+    public boolean isExpression(String attribute) {
+        return PATTERN.matcher(attribute).find();
+    }
+
     private String evaluateCompositeExpression(Matcher matcher) {
         StringBuffer buffer = new StringBuffer();
         do {
@@ -0,0 +1,119 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.annotation.Timed;
+
+import javax.annotation.Priority;
+import javax.decorator.Decorator;
+import javax.decorator.Delegate;
+import javax.enterprise.event.Event;
+import javax.enterprise.inject.Any;
+import javax.enterprise.util.TypeLiteral;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+
+@Decorator
+@Priority(Interceptor.Priority.LIBRARY_BEFORE)
+/* package-private */ class EventDecorator<T> implements Event<T>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    @Any
+    @Delegate
+    private Event<T> delegate;
+
+    @Inject
+    private EventMetrics metrics;
+
+    @Inject
+    private MetricsExtension extension;
+
+    @Override
+    public void fire(T event) {
+        fire(delegate, metrics, extension.getControl(), event);
+    }
+
+    @Override
+    public Event<T> select(Annotation... qualifiers) {
+        return new SelectedEvent<>(delegate.select(qualifiers), metrics, extension.getControl());
+    }
+
+    @Override
+    public <U extends T> Event<U> select(Class<U> subtype, Annotation... qualifiers) {
+        return new SelectedEvent<>(delegate.select(subtype, qualifiers), metrics, extension.getControl());
+    }
+
+    @Override
+    public <U extends T> Event<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+        return new SelectedEvent<>(delegate.select(subtype, qualifiers), metrics, extension.getControl());
+    }
+
+    private static <T> void fire(Event<T> event, EventMetrics metrics, MetricsSwitch control, T payload) {
+        // Let the container report null payloads, whose type is unknown, and skip the disabled event types
+        if (payload == null || !control.isEnabled(payload.getClass(), Timed.class)) {
+            event.fire(payload);
+            return;
+        }
+
+        // Synchronous observers are notified in the firing thread so this measures the whole delivery
+        Timer.Context time = metrics.fire(payload.getClass()).time();
+        try {
+            event.fire(payload);
+        } finally {
+            time.stop();
+        }
+    }
+
+    private static final class SelectedEvent<T> implements Event<T> {
+
+        private final Event<T> delegate;
+
+        private final EventMetrics metrics;
+
+        private final MetricsSwitch control;
+
+        private SelectedEvent(Event<T> delegate, EventMetrics metrics, MetricsSwitch control) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+            this.control = control;
+        }
+
+        @Override
+        public void fire(T event) {
+            EventDecorator.fire(delegate, metrics, control, event);
+        }
+
+        @Override
+        public Event<T> select(Annotation... qualifiers) {
+            return new SelectedEvent<>(delegate.select(qualifiers), metrics, control);
+        }
+
+        @Override
+        public <U extends T> Event<U> select(Class<U> subtype, Annotation... qualifiers) {
+            return new SelectedEvent<>(delegate.select(subtype, qualifiers), metrics, control);
+        }
+
+        @Override
+        public <U extends T> Event<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+            return new SelectedEvent<>(delegate.select(subtype, qualifiers), metrics, control);
+        }
+    }
+}
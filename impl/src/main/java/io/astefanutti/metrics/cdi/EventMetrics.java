@@ -0,0 +1,71 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@ApplicationScoped
+/* package-private */ class EventMetrics {
+
+    private final ConcurrentMap<Class<?>, Timer> fires = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Method, Timer> observers = new ConcurrentHashMap<>();
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private Clock clock;
+
+    Timer fire(Class<?> event) {
+        Timer timer = fires.get(event);
+        if (timer == null) {
+            // The registry returns the existing timer on concurrent registration
+            timer = registry.timer(MetricRegistry.name(event, "fire"), MetricSuppliers.timer(clock, false));
+            fires.put(event, timer);
+        }
+        return timer;
+    }
+
+    Timer observer(Method method) {
+        Timer timer = observers.get(method);
+        if (timer == null) {
+            timer = registry.timer(MetricRegistry.name(observedType(method), "observer", method.getDeclaringClass().getSimpleName(), method.getName()), MetricSuppliers.timer(clock, false));
+            observers.put(method, timer);
+        }
+        return timer;
+    }
+
+    private static Class<?> observedType(Method method) {
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < annotations.length; i++)
+            for (Annotation annotation : annotations[i])
+                if (annotation.annotationType().equals(Observes.class))
+                    return method.getParameterTypes()[i];
+
+        throw new IllegalArgumentException("No observed event parameter for method [" + method + "]");
+    }
+}
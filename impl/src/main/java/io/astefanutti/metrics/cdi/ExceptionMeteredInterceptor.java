@@ -37,15 +37,18 @@ import java.lang.reflect.Member;
 
     private final Bean<?> bean;
 
-    private final MetricRegistry registry;
-
     private final MetricResolver resolver;
 
+    private final MetricsSwitch control;
+
+    private final RequestBuffers buffers;
+
     @Inject
-    private ExceptionMeteredInterceptor(@Intercepted Bean<?> bean, MetricRegistry registry, MetricResolver resolver) {
+    private ExceptionMeteredInterceptor(@Intercepted Bean<?> bean, MetricResolver resolver, MetricsExtension extension) {
         this.bean = bean;
-        this.registry = registry;
         this.resolver = resolver;
+        this.control = extension.getControl();
+        this.buffers = extension.getRequestBuffers();
     }
 
     @AroundConstruct
@@ -59,7 +62,12 @@ import java.lang.reflect.Member;
     }
 
     private <E extends Member & AnnotatedElement> Object meteredCallable(InvocationContext context, E element) throws Throwable {
-        MetricResolver.Of<ExceptionMetered> exceptionMetered = resolver.exceptionMetered(bean.getBeanClass(), element);
+        if (!control.isEnabled(bean.getBeanClass(), element, ExceptionMetered.class))
+            return context.proceed();
+
+        MetricResolver.Plan plan = resolver.plan(bean.getBeanClass(), element);
+        MetricResolver.Of<ExceptionMetered> exceptionMetered = plan.exceptionMetered();
+        MetricRegistry registry = plan.registry();
         Meter meter = (Meter) registry.getMetrics().get(exceptionMetered.metricName());
         if (meter == null)
             throw new IllegalStateException("No meter with name [" + exceptionMetered.metricName() + "] found in registry [" + registry + "]");
@@ -67,8 +75,13 @@ import java.lang.reflect.Member;
         try {
             return context.proceed();
         } catch (Throwable throwable) {
-            if (exceptionMetered.metricAnnotation().cause().isInstance(throwable))
-                meter.mark();
+            if (exceptionMetered.metricAnnotation().cause().isInstance(throwable)) {
+                RequestBuffer buffer = buffers.current();
+                if (buffer != null)
+                    buffer.mark(meter);
+                else
+                    meter.mark();
+            }
 
             throw throwable;
         }
@@ -0,0 +1,64 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An annotation declaring the interval at which the annotated timed methods are expected to be called,
+ * e.g. by a fixed-rate scheduler, so that the coordinated omission gets corrected: the durations are also recorded
+ * into the {@code <timer>.corrected} histogram, and when an invocation takes longer than the expected interval,
+ * the invocations that would have been issued in the meantime are accounted for by recording additional samples
+ * into that histogram, linearly decreasing from the measured duration down to the expected interval.
+ *
+ * It can be declared along with the {@link com.codahale.metrics.annotation.Timed} annotation on a bean class or
+ * method, e.g.:
+ * <pre>{@code
+ * @Timed
+ * @ExpectedInterval(value = 1, unit = TimeUnit.SECONDS)
+ * public void scheduledMethod() {
+ * }
+ * }</pre>
+ *
+ * The timer itself only records the actual invocations so that its count and rates are not inflated.
+ * The timers tagged by argument values record the actual durations only. The number of additional samples recorded
+ * per invocation is bounded by {@value #MAX_SAMPLES}, these being evenly spread over the omitted invocations beyond that.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface ExpectedInterval {
+
+    /**
+     * The maximum number of additional samples recorded per invocation.
+     */
+    int MAX_SAMPLES = 1000;
+
+    /**
+     * @return the expected interval between two invocations, expressed in {@link #unit()}
+     */
+    long value();
+
+    /**
+     * @return the time unit of the expected interval
+     */
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+}
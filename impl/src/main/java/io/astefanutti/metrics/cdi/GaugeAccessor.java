@@ -0,0 +1,57 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+/**
+ * Reads the values of the {@link com.codahale.metrics.annotation.Gauge} and {@link com.codahale.metrics.annotation.CachedGauge}
+ * methods of a bean class with direct method invocations instead of reflection.
+ *
+ * Implementations are generated at build time by the {@code io.astefanutti.metrics.cdi.processor.GaugeAccessorProcessor}
+ * annotation processor, that is enabled by adding the {@code metrics-cdi-processor} artifact to the annotation processor
+ * path, in the package of the bean class and named after its binary name with the {@value #SUFFIX} suffix. Gauge methods that
+ * are private or declared in classes that cannot be accessed from their package are read with reflection.
+ *
+ * The gauge methods returning a {@code long}, respectively a {@code double}, can also be read without boxing, so that
+ * they are registered as {@link LongGauge}, respectively {@link DoubleGauge}, instances.
+ */
+public interface GaugeAccessor {
+
+    String SUFFIX = "$MetricsGauges";
+
+    /**
+     * @param target the bean instance
+     * @param method the name of the gauge method
+     * @return the value returned by the gauge method invoked on the bean instance
+     * @throws IllegalArgumentException if no gauge method with that name is declared by the bean class
+     */
+    Object get(Object target, String method);
+
+    /**
+     * @param target the bean instance
+     * @param method the name of the gauge method returning a {@code long}
+     * @return the value returned by the gauge method invoked on the bean instance
+     * @throws IllegalArgumentException if no gauge method with that name and returning a {@code long} is declared by the bean class
+     */
+    long getAsLong(Object target, String method);
+
+    /**
+     * @param target the bean instance
+     * @param method the name of the gauge method returning a {@code double}
+     * @return the value returned by the gauge method invoked on the bean instance
+     * @throws IllegalArgumentException if no gauge method with that name and returning a {@code double} is declared by the bean class
+     */
+    double getAsDouble(Object target, String method);
+}
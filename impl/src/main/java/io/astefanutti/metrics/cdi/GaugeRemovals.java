@@ -0,0 +1,56 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricRegistryListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.concurrent.atomic.AtomicLong;
+
+@ApplicationScoped
+/* package-private */ class GaugeRemovals {
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final MetricRegistryListener listener = new MetricRegistryListener.Base() {
+        @Override
+        public void onGaugeRemoved(String name) {
+            generation.incrementAndGet();
+        }
+    };
+
+    @Inject
+    private MetricRegistry registry;
+
+    @PostConstruct
+    private void addListener() {
+        registry.addListener(listener);
+    }
+
+    @PreDestroy
+    private void removeListener() {
+        registry.removeListener(listener);
+    }
+
+    // Incremented each time a gauge gets removed from the registry so that the gauges resolved before get resolved again
+    long generation() {
+        return generation.get();
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import javax.enterprise.inject.Vetoed;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records values into double-buffered interval histograms so that writers never block nor contend with readers.
+ *
+ * Writers are spread over stripes, allocated lazily, according to their thread identifier so that concurrent
+ * writers rarely share the same histogram. Each stripe is double-buffered and guarded by a writer-reader phaser so
+ * that readers can swap the active histogram of each stripe and harvest the values recorded during the previous
+ * interval once the in-flight writers have completed.
+ *
+ * Stripes are used instead of strictly thread-local histograms to bound the memory footprint with large thread pools.
+ */
+@Vetoed
+/* package-private */ final class HistogramRecorder {
+
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicReferenceArray<Stripe> stripes = new AtomicReferenceArray<>(STRIPES);
+
+    void record(long value) {
+        stripe().record(value);
+    }
+
+    // Readers must not harvest concurrently
+    void harvestInto(LogLinearHistogram histogram) {
+        for (int i = 0; i < STRIPES; i++) {
+            Stripe stripe = stripes.get(i);
+            if (stripe != null)
+                stripe.harvestInto(histogram);
+        }
+    }
+
+    private Stripe stripe() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        int index = (hash ^ (hash >>> 16)) & (STRIPES - 1);
+        Stripe stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new Stripe());
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    private static int stripes(int processors) {
+        int stripes = 1;
+        while (stripes < processors && stripes < 32)
+            stripes <<= 1;
+        return stripes;
+    }
+
+    // See http://stuff-gil-says.blogspot.com/2014/11/writerreaderphaser-story-about-new.html
+    private static final class Stripe {
+
+        private final AtomicLong startEpoch = new AtomicLong(0L);
+
+        private final AtomicLong evenEndEpoch = new AtomicLong(0L);
+
+        private final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+
+        private volatile LogLinearHistogram active = new LogLinearHistogram();
+
+        private LogLinearHistogram inactive = new LogLinearHistogram();
+
+        void record(long value) {
+            long epoch = startEpoch.getAndIncrement();
+            try {
+                active.record(value);
+            } finally {
+                if (epoch < 0)
+                    oddEndEpoch.getAndIncrement();
+                else
+                    evenEndEpoch.getAndIncrement();
+            }
+        }
+
+        void harvestInto(LogLinearHistogram histogram) {
+            LogLinearHistogram interval = active;
+            inactive.reset();
+            active = inactive;
+            inactive = interval;
+            flipPhase();
+            histogram.add(interval);
+        }
+
+        private void flipPhase() {
+            boolean nextPhaseIsEven = startEpoch.get() < 0;
+            long initialStartValue = nextPhaseIsEven ? 0L : Long.MIN_VALUE;
+            if (nextPhaseIsEven)
+                evenEndEpoch.set(initialStartValue);
+            else
+                oddEndEpoch.set(initialStartValue);
+
+            long startValueAtFlip = startEpoch.getAndSet(initialStartValue);
+            // Wait for the writers that entered the previous phase to complete
+            while ((nextPhaseIsEven ? oddEndEpoch : evenEndEpoch).get() != startValueAtFlip)
+                Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Snapshot;
+
+import javax.enterprise.inject.Vetoed;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * A mergeable histogram sketch of the values of a timer or a histogram, that can be encoded to be shipped along with
+ * its summary and merged with the sketches of the same metric from other nodes, so that percentiles can be computed
+ * correctly over a whole fleet, unlike percentiles from {@link Snapshot} that cannot be averaged.
+ *
+ * Sketches are made of the buckets of a log-linear histogram with a relative precision better than 3%. They are exact
+ * for the timers and histograms declared with the {@link Recorded} or the {@link RollingWindow} annotations, while they
+ * are built from the values sampled by other reservoirs, weighted so that they add up to the metric count. The count
+ * of a sketch is the count of the metric, that is larger than the number of values in the sketch for the metrics
+ * declared with the {@link RollingWindow} annotation as their sketch only has the values of the current window.
+ *
+ * The encoding is the base64 representation of the index gaps and the counts of the non-empty buckets, written
+ * as variable-length integers, so that the size of a sketch grows with the number of distinct values recorded.
+ */
+@Vetoed
+public final class HistogramSketch {
+
+    private static final int VERSION = 1;
+
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static final int[] BASE64_INDEX = new int[128];
+
+    static {
+        Arrays.fill(BASE64_INDEX, -1);
+        for (int i = 0; i < BASE64.length; i++)
+            BASE64_INDEX[BASE64[i]] = i;
+    }
+
+    private final long[] counts;
+
+    private final long count;
+
+    private HistogramSketch(long[] counts, long count) {
+        this.counts = counts;
+        this.count = count;
+    }
+
+    /**
+     * Returns the sketch of the given snapshot whose values are weighted to add up to the given count if they are sampled.
+     */
+    static HistogramSketch of(Snapshot snapshot, long count) {
+        if (snapshot instanceof HistogramSnapshot)
+            return new HistogramSketch(((HistogramSnapshot) snapshot).counts().clone(), count);
+
+        long[] counts = new long[LogLinearHistogram.BUCKETS];
+        long[] values = snapshot.getValues();
+        for (int i = 0; i < values.length; i++)
+            // Spreads the count over the sampled values so that the weights add up exactly
+            counts[LogLinearHistogram.index(values[i])] += count * (i + 1) / values.length - count * i / values.length;
+
+        return new HistogramSketch(counts, count);
+    }
+
+    /**
+     * Decodes a sketch from its encoded representation.
+     *
+     * @param encoded the representation returned by {@link #encode()}
+     * @return the decoded sketch
+     * @throws IllegalArgumentException if the representation is not a valid sketch
+     */
+    public static HistogramSketch decode(String encoded) {
+        return decode(encoded, -1);
+    }
+
+    /**
+     * Decodes a sketch from its encoded representation with the given metric count, or the number of values in the
+     * sketch if negative.
+     */
+    static HistogramSketch decode(String encoded, long count) {
+        byte[] bytes = fromBase64(encoded);
+        int[] position = {0};
+        if (readVarint(bytes, position) != VERSION)
+            throw new IllegalArgumentException("Unsupported sketch version [" + encoded + "]");
+
+        long[] counts = new long[LogLinearHistogram.BUCKETS];
+        long total = 0;
+        int index = -1;
+        while (position[0] < bytes.length) {
+            // The gap is checked before being added to the index as it may be any long value in a malformed sketch
+            long gap = readVarint(bytes, position);
+            if (gap < 0 || gap >= counts.length - 1 - index)
+                throw new IllegalArgumentException("Sketch bucket gap [" + gap + "] out of bounds in [" + encoded + "]");
+            index += (int) gap + 1;
+            long bucket = readVarint(bytes, position);
+            if (bucket < 0 || bucket > Long.MAX_VALUE - total)
+                throw new IllegalArgumentException("Sketch bucket count [" + bucket + "] out of bounds in [" + encoded + "]");
+            counts[index] = bucket;
+            total += bucket;
+        }
+        return new HistogramSketch(counts, count < 0 ? total : count);
+    }
+
+    /**
+     * @return the encoded representation of this sketch
+     */
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeVarint(bytes, VERSION);
+        int previous = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                writeVarint(bytes, i - previous - 1);
+                writeVarint(bytes, counts[i]);
+                previous = i;
+            }
+        }
+        return toBase64(bytes.toByteArray());
+    }
+
+    /**
+     * Returns a new sketch of the values of both this sketch and the given one.
+     *
+     * @param sketch the sketch to merge with this sketch
+     * @return the merged sketch
+     */
+    public HistogramSketch merge(HistogramSketch sketch) {
+        long[] counts = this.counts.clone();
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += sketch.counts[i];
+        return new HistogramSketch(counts, count + sketch.count);
+    }
+
+    /**
+     * @return the count of the metric, that is the number of values in this sketch unless the metric is windowed
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the snapshot of the values in this sketch
+     */
+    public Snapshot getSnapshot() {
+        return new HistogramSnapshot(counts);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream bytes, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes.write((int) value);
+    }
+
+    private static long readVarint(byte[] bytes, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= bytes.length)
+                throw new IllegalArgumentException("Truncated sketch");
+            byte b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Malformed sketch variable-length integer");
+    }
+
+    private static String toBase64(byte[] bytes) {
+        StringBuilder builder = new StringBuilder((bytes.length + 2) / 3 * 4);
+        for (int i = 0; i < bytes.length; i += 3) {
+            int chunk = (bytes[i] & 0xFF) << 16;
+            if (i + 1 < bytes.length)
+                chunk |= (bytes[i + 1] & 0xFF) << 8;
+            if (i + 2 < bytes.length)
+                chunk |= bytes[i + 2] & 0xFF;
+            builder.append(BASE64[chunk >>> 18 & 0x3F]).append(BASE64[chunk >>> 12 & 0x3F]);
+            builder.append(i + 1 < bytes.length ? BASE64[chunk >>> 6 & 0x3F] : '=');
+            builder.append(i + 2 < bytes.length ? BASE64[chunk & 0x3F] : '=');
+        }
+        return builder.toString();
+    }
+
+    private static byte[] fromBase64(String encoded) {
+        if (encoded.length() % 4 != 0)
+            throw new IllegalArgumentException("Invalid sketch encoding [" + encoded + "]");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(encoded.length() / 4 * 3);
+        for (int i = 0; i < encoded.length(); i += 4) {
+            int chunk = 0;
+            int padding = 0;
+            for (int j = 0; j < 4; j++) {
+                char c = encoded.charAt(i + j);
+                int sextet;
+                if (c == '=' && i + 4 == encoded.length() && j >= 2) {
+                    padding++;
+                    sextet = 0;
+                } else if (c < 128 && BASE64_INDEX[c] >= 0 && padding == 0) {
+                    sextet = BASE64_INDEX[c];
+                } else {
+                    throw new IllegalArgumentException("Invalid sketch encoding [" + encoded + "]");
+                }
+                chunk = chunk << 6 | sextet;
+            }
+            bytes.write(chunk >>> 16);
+            if (padding < 2)
+                bytes.write(chunk >>> 8 & 0xFF);
+            if (padding < 1)
+                bytes.write(chunk & 0xFF);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Provides mergeable histogram sketches of the timers and the histograms of the Metrics registry resolved for the CDI
+ * application and of the registries named with the {@link InRegistry} annotation, whose metric names are prefixed with
+ * the registry name followed by a colon.
+ *
+ * The sketches can be exported along with the metrics summary, e.g. periodically to a collector, so that the sketches
+ * of the same metrics from many nodes get merged with the {@link SketchAggregator} to compute fleet-wide percentiles:
+ * <pre>{@code
+ * try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+ *     sketches.export(writer);
+ * }
+ * }</pre>
+ */
+@ApplicationScoped
+public class HistogramSketches {
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private MetricResolver resolver;
+
+    /**
+     * Returns the sketches of the timers and the histograms of the registries.
+     *
+     * @return the sketches of the timers and the histograms, sorted by name
+     */
+    public SortedMap<String, HistogramSketch> sketches() {
+        SortedMap<String, HistogramSketch> sketches = new TreeMap<>();
+        sketches(sketches, "", registry);
+        for (Map.Entry<String, MetricRegistry> registry : resolver.registries().entrySet())
+            if (registry.getValue() != this.registry)
+                sketches(sketches, registry.getKey() + ':', registry.getValue());
+
+        return Collections.unmodifiableSortedMap(sketches);
+    }
+
+    /**
+     * Writes the summary and the sketch of the timers and the histograms of the registries in the format read by the
+     * {@link SketchAggregator}.
+     *
+     * @param writer the writer to write the metrics to
+     * @throws IOException if an I/O error occurs
+     */
+    public void export(Writer writer) throws IOException {
+        SketchAggregator.write(writer, sketches());
+    }
+
+    private static void sketches(Map<String, HistogramSketch> sketches, String prefix, MetricRegistry registry) {
+        for (Map.Entry<String, Timer> timer : registry.getTimers().entrySet())
+            sketches.put(prefix + timer.getKey(), HistogramSketch.of(timer.getValue().getSnapshot(), timer.getValue().getCount()));
+        for (Map.Entry<String, Histogram> histogram : registry.getHistograms().entrySet())
+            sketches.put(prefix + histogram.getKey(), HistogramSketch.of(histogram.getValue().getSnapshot(), histogram.getValue().getCount()));
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Snapshot;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/* package-private */ final class HistogramSnapshot extends Snapshot {
+
+    // Bounds the values returned for weighted consumers to 128 KB
+    static final int MAX_VALUES = 1 << 14;
+
+    private final long[] counts;
+
+    private final long count;
+
+    HistogramSnapshot(long[] counts) {
+        this.counts = counts;
+        long count = 0;
+        for (long bucket : counts)
+            count += bucket;
+        this.count = count;
+    }
+
+    /**
+     * Returns the bucket counts backing this snapshot, that must not be modified.
+     */
+    long[] counts() {
+        return counts;
+    }
+
+    @Override
+    public double getValue(double quantile) {
+        if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile))
+            throw new IllegalArgumentException(quantile + " is not in [0..1]");
+
+        if (count == 0)
+            return 0.0;
+
+        long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+        long cumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulated += counts[i];
+            if (cumulated >= rank)
+                return LogLinearHistogram.value(i);
+        }
+        return getMax();
+    }
+
+    /**
+     * Returns the values of the buckets repeated by their counts, in ascending order, so that they are weighted
+     * consistently with {@link #size()}. Beyond {@link #MAX_VALUES} values, the bucket counts are scaled down
+     * proportionally to bound the size of the returned array.
+     */
+    @Override
+    public long[] getValues() {
+        long[] values = new long[size()];
+        int size = 0;
+        long cumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0)
+                continue;
+            cumulated += counts[i];
+            // Rounding the cumulated counts makes the scaled counts add up exactly to the array length
+            int end = count <= MAX_VALUES ? (int) cumulated : (int) ((double) cumulated * values.length / count + 0.5);
+            Arrays.fill(values, size, Math.min(end, values.length), LogLinearHistogram.value(i));
+            size = Math.max(size, Math.min(end, values.length));
+        }
+        return values;
+    }
+
+    /**
+     * Returns the number of values returned by {@link #getValues()}, that is the number of values recorded up to {@link #MAX_VALUES}.
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(count, MAX_VALUES);
+    }
+
+    @Override
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--)
+            if (counts[i] != 0)
+                return LogLinearHistogram.value(i);
+
+        return 0;
+    }
+
+    @Override
+    public double getMean() {
+        if (count == 0)
+            return 0.0;
+
+        double sum = 0.0;
+        for (int i = 0; i < counts.length; i++)
+            if (counts[i] != 0)
+                sum += (double) LogLinearHistogram.value(i) * counts[i];
+
+        return sum / count;
+    }
+
+    @Override
+    public long getMin() {
+        for (int i = 0; i < counts.length; i++)
+            if (counts[i] != 0)
+                return LogLinearHistogram.value(i);
+
+        return 0;
+    }
+
+    @Override
+    public double getStdDev() {
+        if (count <= 1)
+            return 0.0;
+
+        double mean = getMean();
+        double sum = 0.0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                double difference = LogLinearHistogram.value(i) - mean;
+                sum += difference * difference * counts[i];
+            }
+        }
+        return Math.sqrt(sum / (count - 1));
+    }
+
+    @Override
+    public void dump(OutputStream output) {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+            for (long value : getValues())
+                out.printf("%d%n", value);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A timer ranked by {@link Hotspots}, along with the value it is ranked by.
+ */
+public final class Hotspot {
+
+    private final String name;
+
+    private final double value;
+
+    @ConstructorProperties({"name", "value"})
+    public Hotspot(String name, double value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    /**
+     * @return the name of the timer
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the value the timer is ranked by
+     */
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return name + "=" + value;
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricRegistryListener;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import javax.enterprise.inject.Vetoed;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Vetoed
+/* package-private */ final class HotspotTracker implements Hotspots, HotspotsMXBean {
+
+    static final String PREFIX = "hotspots";
+
+    static final String P99 = MetricRegistry.name(PREFIX, "p99");
+
+    static final String RATE = MetricRegistry.name(PREFIX, "rate");
+
+    static final String TOTAL = MetricRegistry.name(PREFIX, "total");
+
+    private static final Comparator<Hotspot> ASCENDING = new Comparator<Hotspot>() {
+        @Override
+        public int compare(Hotspot first, Hotspot second) {
+            return Double.compare(first.getValue(), second.getValue());
+        }
+    };
+
+    private final ConcurrentMap<MetricRegistry, Tracked> registries = new ConcurrentHashMap<>();
+
+    // Published atomically by the background pass so that readers never see a partial ranking
+    private volatile Rankings rankings = new Rankings(new Ranking(), new Ranking(), new Ranking());
+
+    private volatile boolean tracking;
+
+    private MetricRegistry registry;
+
+    private ScheduledExecutorService scheduler;
+
+    private final List<String> gauges = new ArrayList<>();
+
+    void track(MetricRegistry registry, String name, Timer timer) {
+        if (!tracking)
+            return;
+
+        Tracked tracked = registries.get(registry);
+        if (tracked == null) {
+            Tracked created = new Tracked();
+            tracked = registries.putIfAbsent(registry, created);
+            if (tracked == null) {
+                tracked = created;
+                registry.addListener(tracked);
+            }
+        }
+        tracked.track(name, timer);
+    }
+
+    /**
+     * Returns the running total of the durations of the tracked timer, in nanoseconds, or {@code null} if it is not tracked.
+     */
+    AtomicLong total(MetricRegistry registry, String name) {
+        if (!tracking)
+            return null;
+
+        Tracked tracked = registries.get(registry);
+        if (tracked == null)
+            return null;
+        Entry entry = tracked.timers.get(name);
+        return entry != null ? entry.total : null;
+    }
+
+    synchronized void start(MetricRegistry registry, long period, TimeUnit unit) {
+        tracking = true;
+        this.registry = registry;
+        registerGauges(P99, Rankings.SLOWEST);
+        registerGauges(RATE, Rankings.MOST_CALLED);
+        registerGauges(TOTAL, Rankings.MOST_TIME);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "metrics-cdi-hotspots");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                refresh();
+            }
+        }, period, period, unit);
+    }
+
+    synchronized void stop() {
+        if (scheduler == null)
+            return;
+
+        tracking = false;
+        scheduler.shutdownNow();
+        for (Map.Entry<MetricRegistry, Tracked> tracked : registries.entrySet())
+            tracked.getKey().removeListener(tracked.getValue());
+        registries.clear();
+        for (String gauge : gauges)
+            registry.remove(gauge);
+        gauges.clear();
+        scheduler = null;
+        registry = null;
+    }
+
+    // Numeric gauges per rank, as reporters cannot export the rankings themselves
+    private void registerGauges(String prefix, final int ranking) {
+        for (int rank = 1; rank <= SIZE; rank++) {
+            final int index = rank - 1;
+            String value = MetricRegistry.name(prefix, String.valueOf(rank), "value");
+            registry.register(value, new Gauge<Double>() {
+                @Override
+                public Double getValue() {
+                    Hotspot hotspot = rankings.get(ranking, index);
+                    return hotspot != null ? hotspot.getValue() : 0D;
+                }
+            });
+            gauges.add(value);
+            String name = MetricRegistry.name(prefix, String.valueOf(rank), "name");
+            registry.register(name, new Gauge<String>() {
+                @Override
+                public String getValue() {
+                    Hotspot hotspot = rankings.get(ranking, index);
+                    return hotspot != null ? hotspot.getName() : null;
+                }
+            });
+            gauges.add(name);
+        }
+    }
+
+    @Override
+    public List<Hotspot> getSlowest() {
+        return rankings.slowest;
+    }
+
+    @Override
+    public List<Hotspot> getMostCalled() {
+        return rankings.mostCalled;
+    }
+
+    @Override
+    public List<Hotspot> getMostTime() {
+        return rankings.mostTime;
+    }
+
+    @Override
+    public synchronized void refresh() {
+        // Bounded heaps retain the top entries in a single pass instead of sorting all the timers
+        Ranking slowest = new Ranking();
+        Ranking mostCalled = new Ranking();
+        Ranking mostTime = new Ranking();
+        for (Tracked tracked : registries.values()) {
+            for (Map.Entry<String, Entry> timer : tracked.timers.entrySet()) {
+                Entry entry = timer.getValue();
+                long count = entry.timer.getCount();
+                if (count == 0)
+                    continue;
+
+                // Only the timers updated since the previous pass get their snapshot taken, which is the costly part
+                if (count != entry.count) {
+                    Snapshot snapshot = entry.timer.getSnapshot();
+                    entry.p99 = snapshot.get99thPercentile();
+                    entry.count = count;
+                }
+                slowest.offer(timer.getKey(), entry.p99);
+                mostCalled.offer(timer.getKey(), entry.timer.getOneMinuteRate());
+                mostTime.offer(timer.getKey(), entry.total.get());
+            }
+        }
+        rankings = new Rankings(slowest, mostCalled, mostTime);
+    }
+
+    // Tracks the timers of a registry, and evicts or replaces them as they get removed or registered again,
+    // so that the rankings neither retain removed timers nor rank stale instances
+    private static final class Tracked extends MetricRegistryListener.Base {
+
+        private final Set<String> names = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        private final ConcurrentMap<String, Entry> timers = new ConcurrentHashMap<>();
+
+        void track(String name, Timer timer) {
+            if (names.add(name))
+                timers.putIfAbsent(name, new Entry(timer));
+        }
+
+        @Override
+        public void onTimerAdded(String name, Timer timer) {
+            if (names.contains(name))
+                timers.put(name, new Entry(timer));
+        }
+
+        @Override
+        public void onTimerRemoved(String name) {
+            timers.remove(name);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Timer timer;
+
+        // The sum of the durations recorded by the interceptors, as the snapshot of sampled or windowed reservoirs cannot tell it
+        private final AtomicLong total = new AtomicLong();
+
+        // The snapshot values as of the last pass the timer had been updated for, only accessed by the refreshing thread
+        private long count;
+
+        private double p99;
+
+        private Entry(Timer timer) {
+            this.timer = timer;
+        }
+    }
+
+    private static final class Ranking {
+
+        private final PriorityQueue<Hotspot> heap = new PriorityQueue<>(SIZE, ASCENDING);
+
+        void offer(String name, double value) {
+            if (heap.size() < SIZE) {
+                heap.add(new Hotspot(name, value));
+            } else if (value > heap.peek().getValue()) {
+                heap.poll();
+                heap.add(new Hotspot(name, value));
+            }
+        }
+
+        List<Hotspot> descending() {
+            List<Hotspot> hotspots = new ArrayList<>(heap);
+            Collections.sort(hotspots, Collections.reverseOrder(ASCENDING));
+            return Collections.unmodifiableList(hotspots);
+        }
+    }
+
+    private static final class Rankings {
+
+        private static final int SLOWEST = 0;
+
+        private static final int MOST_CALLED = 1;
+
+        private static final int MOST_TIME = 2;
+
+        private final List<Hotspot> slowest;
+
+        private final List<Hotspot> mostCalled;
+
+        private final List<Hotspot> mostTime;
+
+        private Rankings(Ranking slowest, Ranking mostCalled, Ranking mostTime) {
+            this.slowest = slowest.descending();
+            this.mostCalled = mostCalled.descending();
+            this.mostTime = mostTime.descending();
+        }
+
+        Hotspot get(int ranking, int index) {
+            List<Hotspot> hotspots = ranking == SLOWEST ? slowest : ranking == MOST_CALLED ? mostCalled : mostTime;
+            return index < hotspots.size() ? hotspots.get(index) : null;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the top {@value #SIZE} timers managed by the Metrics CDI interceptors ranked by 99th percentile,
+ * by rate and by total time, so that the hotspots can be found without dumping the whole registry.
+ *
+ * The rankings are computed by a background pass over the timers, that only retains the top entries for each
+ * ranking and only takes the snapshots of the timers updated since the previous pass, and are published atomically
+ * so that reading them is cheap. The timers removed from their registry are evicted from the rankings. The tracking is disabled until it is
+ * enabled with {@link MetricsConfiguration#trackHotspots(long, TimeUnit)}.
+ *
+ * The rankings are exposed as numeric gauges per rank, e.g. {@code hotspots.p99.1.value}, along with the
+ * {@code hotspots.p99.1.name} gauges of the ranked timer names, under the {@code hotspots.p99}, {@code hotspots.rate}
+ * and {@code hotspots.total} prefixes, via JMX by the {@link HotspotsMXBean} and can be injected, e.g.:
+ * <pre>{@code
+ * @Inject
+ * Hotspots hotspots;
+ * }</pre>
+ */
+public interface Hotspots {
+
+    /**
+     * The number of timers retained by each ranking.
+     */
+    int SIZE = 10;
+
+    /**
+     * @return the timers with the highest 99th percentile, in nanoseconds
+     */
+    List<Hotspot> getSlowest();
+
+    /**
+     * @return the timers with the highest one-minute rate, in calls per second
+     */
+    List<Hotspot> getMostCalled();
+
+    /**
+     * @return the timers with the highest total time, i.e. the sum of the durations recorded by the interceptors since
+     * the timers have been tracked, in nanoseconds
+     */
+    List<Hotspot> getMostTime();
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.util.List;
+
+/**
+ * The JMX management interface of the {@link Hotspots}, registered with the
+ * {@code io.astefanutti.metrics.cdi:type=Hotspots} object name.
+ */
+public interface HotspotsMXBean {
+
+    List<Hotspot> getSlowest();
+
+    List<Hotspot> getMostCalled();
+
+    List<Hotspot> getMostTime();
+
+    /**
+     * Computes the rankings immediately instead of waiting for the next background pass.
+     */
+    void refresh();
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation routing the metrics of the annotated element to the {@link com.codahale.metrics.MetricRegistry} bean
+ * qualified with the {@link RegistryName} of the same name instead of the default registry, e.g. to separate
+ * the high-frequency metrics, with their own reporters and reservoirs, from the business metrics.
+ *
+ * It can be declared along with the Metrics annotations on a bean class, constructor or method, e.g.:
+ * <pre>{@code
+ * @Timed
+ * @InRegistry("hot")
+ * public void timedMethod() {
+ * }
+ * }</pre>
+ *
+ * The registry is resolved once per bean class and member so that the routing does not cost anything per invocation.
+ * The deployment fails if no registry bean is qualified with that name. Metrics injected by Metrics CDI are always
+ * retrieved from the default registry.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD })
+public @interface InRegistry {
+
+    /**
+     * @return the name of the registry
+     */
+    String value();
+}
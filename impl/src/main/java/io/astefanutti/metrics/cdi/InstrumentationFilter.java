@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.annotation.CachedGauge;
+import com.codahale.metrics.annotation.Counted;
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Gauge;
+import com.codahale.metrics.annotation.Metered;
+import com.codahale.metrics.annotation.Timed;
+
+import javax.enterprise.inject.Vetoed;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Filters the types and the metrics annotation types that get instrumented according to
+ * the {@code metrics.cdi.include} and {@code metrics.cdi.exclude} deployment properties.
+ *
+ * Each property is a comma-separated list of patterns that can either be:
+ * <ul>
+ * <li>a package, e.g. {@code com.acme.*}, that matches the types in that package and its sub-packages,</li>
+ * <li>a fully qualified class name, e.g. {@code com.acme.Service},</li>
+ * <li>an annotation type, prefixed with {@code @}, e.g. {@code @Gauge} or {@code @com.codahale.metrics.annotation.Gauge}.</li>
+ * </ul>
+ * When include patterns are defined, only the matching types, respectively annotation types, are instrumented.
+ * Exclude patterns always take precedence over include patterns.
+ */
+@Vetoed
+/* package-private */ final class InstrumentationFilter {
+
+    static final String INCLUDE = MetricsProperties.PREFIX + "include";
+
+    static final String EXCLUDE = MetricsProperties.PREFIX + "exclude";
+
+    static final Set<Class<? extends Annotation>> ANNOTATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(CachedGauge.class, Counted.class, ExceptionMetered.class, Gauge.class, Metered.class, Timed.class)));
+
+    private final List<String> includedTypes = new ArrayList<>();
+
+    private final List<String> excludedTypes = new ArrayList<>();
+
+    private final List<String> includedAnnotations = new ArrayList<>();
+
+    private final List<String> excludedAnnotations = new ArrayList<>();
+
+    // Resolved eagerly as the set of metrics annotation types is closed
+    private final Set<Class<? extends Annotation>> excluded = new HashSet<>();
+
+    InstrumentationFilter(Properties properties) {
+        parse(properties.getProperty(INCLUDE, ""), includedTypes, includedAnnotations);
+        parse(properties.getProperty(EXCLUDE, ""), excludedTypes, excludedAnnotations);
+        for (Class<? extends Annotation> annotation : ANNOTATIONS)
+            if (!(includedAnnotations.isEmpty() || matchesAnnotation(includedAnnotations, annotation)) || matchesAnnotation(excludedAnnotations, annotation))
+                excluded.add(annotation);
+    }
+
+    boolean isInstrumented(Class<?> type) {
+        return (includedTypes.isEmpty() || matchesType(includedTypes, type)) && !matchesType(excludedTypes, type);
+    }
+
+    boolean isAnnotationInstrumented(Class<? extends Annotation> annotation) {
+        return !excluded.contains(annotation);
+    }
+
+    /**
+     * Returns the metrics annotation types that are excluded from the instrumentation.
+     */
+    Set<Class<? extends Annotation>> getExcludedAnnotations() {
+        return Collections.unmodifiableSet(excluded);
+    }
+
+    private static void parse(String value, List<String> types, List<String> annotations) {
+        for (String pattern : value.split(",")) {
+            pattern = pattern.trim();
+            if (pattern.isEmpty())
+                continue;
+            if (pattern.startsWith("@"))
+                annotations.add(pattern.substring(1));
+            else if (pattern.endsWith(".*"))
+                // Keep the trailing dot so that com.acme.* does not match com.acmeutils
+                types.add(pattern.substring(0, pattern.length() - 1));
+            else
+                types.add(pattern);
+        }
+    }
+
+    private static boolean matchesType(List<String> patterns, Class<?> type) {
+        String name = type.getName();
+        for (String pattern : patterns)
+            if (pattern.endsWith(".") ? name.startsWith(pattern) : name.equals(pattern))
+                return true;
+
+        return false;
+    }
+
+    private static boolean matchesAnnotation(List<String> patterns, Class<? extends Annotation> annotation) {
+        for (String pattern : patterns)
+            if (pattern.equals(annotation.getName()) || pattern.equals(annotation.getSimpleName()))
+                return true;
+
+        return false;
+    }
+}
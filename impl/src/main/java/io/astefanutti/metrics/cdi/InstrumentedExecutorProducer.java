@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.MetricRegistry;
+
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.spi.AnnotatedMember;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.enterprise.inject.spi.Producer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/* package-private */ final class InstrumentedExecutorProducer<X extends ExecutorService> implements Producer<X> {
+
+    private final Producer<X> decorated;
+
+    private final AnnotatedMember<?> member;
+
+    private final Class<?> type;
+
+    private final BeanManager manager;
+
+    InstrumentedExecutorProducer(Producer<X> decorated, AnnotatedMember<?> member, BeanManager manager) {
+        this.decorated = decorated;
+        this.member = member;
+        this.type = (Class<?>) member.getBaseType();
+        this.manager = manager;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public X produce(CreationalContext<X> context) {
+        X executor = decorated.produce(context);
+        if (executor == null)
+            return null;
+
+        MetricRegistry registry = getReference(manager, MetricRegistry.class);
+        InstrumentedExecutorService instrumented = new InstrumentedExecutorService(executor, registry, getReference(manager, MetricName.class).of(member));
+        if (type.isAssignableFrom(InstrumentedExecutorService.class))
+            return (X) instrumented;
+
+        // Sub-interfaces, like ManagedExecutorService, get proxied so that only their ExecutorService methods are instrumented
+        return (X) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new ExecutorHandler(instrumented));
+    }
+
+    @Override
+    public void dispose(X instance) {
+        decorated.dispose(unwrap(instance));
+    }
+
+    @Override
+    public Set<InjectionPoint> getInjectionPoints() {
+        return decorated.getInjectionPoints();
+    }
+
+    @SuppressWarnings("unchecked")
+    private X unwrap(X instance) {
+        if (instance instanceof InstrumentedExecutorService)
+            return (X) ((InstrumentedExecutorService) instance).getDelegate();
+        if (instance != null && Proxy.isProxyClass(instance.getClass()) && Proxy.getInvocationHandler(instance) instanceof ExecutorHandler)
+            return (X) ((ExecutorHandler) Proxy.getInvocationHandler(instance)).instrumented.getDelegate();
+        return instance;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getReference(BeanManager manager, Class<T> type) {
+        Bean<?> bean = manager.resolve(manager.getBeans(type));
+        return (T) manager.getReference(bean, type, manager.createCreationalContext(bean));
+    }
+
+    private static final class ExecutorHandler implements InvocationHandler {
+
+        private final InstrumentedExecutorService instrumented;
+
+        private ExecutorHandler(InstrumentedExecutorService instrumented) {
+            this.instrumented = instrumented;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Class<?> declaring = method.getDeclaringClass();
+            // The proxy is a distinct instance from its delegate so it has identity semantics
+            if (declaring.equals(Object.class)) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return proxy.getClass().getInterfaces()[0].getName() + "@" + Integer.toHexString(System.identityHashCode(proxy)) + "[" + instrumented.getDelegate() + "]";
+                }
+            }
+            Object target = declaring.equals(Executor.class) || declaring.equals(ExecutorService.class) ? instrumented : instrumented.getDelegate();
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException cause) {
+                throw cause.getCause();
+            }
+        }
+    }
+}
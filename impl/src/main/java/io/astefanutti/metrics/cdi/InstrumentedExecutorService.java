@@ -0,0 +1,277 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Instruments an {@link ExecutorService} with the following metrics, prefixed with the executor name:
+ * <ul>
+ * <li>{@code wait}: timer of the time tasks spend queued before they start,</li>
+ * <li>{@code duration}: timer of the tasks execution time,</li>
+ * <li>{@code running}: counter of the tasks being executed,</li>
+ * <li>{@code queued}: counter of the tasks submitted and not started yet,</li>
+ * <li>{@code rejected}: meter of the tasks rejected by the executor.</li>
+ * </ul>
+ * Separating the queue wait time from the execution time makes it possible to tell an undersized pool
+ * from slow tasks.
+ *
+ * The submitted tasks are wrapped into futures that leave the {@code queued} count exactly once, either when they start,
+ * get rejected or cancelled, e.g. by {@link java.util.concurrent.Future#cancel(boolean)} or on the timeout of
+ * {@link #invokeAll(java.util.Collection, long, TimeUnit)}. The tasks submitted by {@link #invokeAny(java.util.Collection)}
+ * are queued by a completion service, so that the cancelled ones leave the {@code queued} count when the delegate
+ * discards them.
+ */
+/* package-private */ final class InstrumentedExecutorService extends AbstractExecutorService {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Task> DEQUEUED = AtomicIntegerFieldUpdater.newUpdater(Task.class, "dequeued");
+
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final ExecutorService delegate;
+
+    private final Timer wait;
+
+    private final Timer duration;
+
+    private final Counter running;
+
+    private final Counter queued;
+
+    private final Meter rejected;
+
+    InstrumentedExecutorService(ExecutorService delegate, MetricRegistry registry, String name) {
+        this.delegate = delegate;
+        this.wait = registry.timer(MetricRegistry.name(name, "wait"));
+        this.duration = registry.timer(MetricRegistry.name(name, "duration"));
+        this.running = registry.counter(MetricRegistry.name(name, "running"));
+        this.queued = registry.counter(MetricRegistry.name(name, "queued"));
+        this.rejected = registry.meter(MetricRegistry.name(name, "rejected"));
+    }
+
+    ExecutorService getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null)
+            throw new NullPointerException();
+        // The tasks created by this executor, e.g. on submission, are instrumented directly
+        Dequeuing task = command instanceof Task && ((Task<?>) command).executor() == this ? (Task<?>) command : new Execution(command);
+        task.enqueue();
+        queued.inc();
+        try {
+            delegate.execute((Runnable) task);
+        } catch (RejectedExecutionException cause) {
+            if (task.dequeue())
+                queued.dec();
+            rejected.mark();
+            throw cause;
+        }
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new Task<>(runnable, value);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new Task<>(callable);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = delegate.shutdownNow();
+        for (ListIterator<Runnable> iterator = tasks.listIterator(); iterator.hasNext();) {
+            Runnable task = iterator.next();
+            if (task instanceof Dequeuing && ((Dequeuing) task).dequeue())
+                queued.dec();
+            // Returns the tasks as executed by the caller, that are the futures returned on submission
+            if (task instanceof Execution)
+                iterator.set(((Execution) task).command);
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+    private long start(long submitted) {
+        long start = System.nanoTime();
+        queued.dec();
+        running.inc();
+        wait.update(start - submitted, TimeUnit.NANOSECONDS);
+        return start;
+    }
+
+    private void stop(long start) {
+        running.dec();
+        duration.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private interface Dequeuing {
+
+        void enqueue();
+
+        /**
+         * Returns whether the task left the queue with that call, which only succeeds once per task.
+         */
+        boolean dequeue();
+    }
+
+    // The futures returned on submission, so that their cancellation is observed
+    private final class Task<T> extends FutureTask<T> implements Dequeuing {
+
+        private long submitted;
+
+        // Only accessed by the executing thread
+        private long start = NOT_STARTED;
+
+        // Not private for the field updater, initially dequeued until executed by this executor
+        volatile int dequeued = 1;
+
+        private Task(Callable<T> callable) {
+            super(callable);
+        }
+
+        private Task(Runnable runnable, T value) {
+            super(runnable, value);
+        }
+
+        private InstrumentedExecutorService executor() {
+            return InstrumentedExecutorService.this;
+        }
+
+        @Override
+        public void enqueue() {
+            submitted = System.nanoTime();
+            dequeued = 0;
+        }
+
+        @Override
+        public boolean dequeue() {
+            return DEQUEUED.compareAndSet(this, 0, 1);
+        }
+
+        @Override
+        public void run() {
+            if (dequeue())
+                start = start(submitted);
+            // Does not run if cancelled, nor get timed if not executed by this executor
+            super.run();
+            // Stops timing if cancelled after it started
+            stop();
+        }
+
+        // Stops timing before the outcome gets visible to the callers
+        @Override
+        protected void set(T value) {
+            stop();
+            super.set(value);
+        }
+
+        @Override
+        protected void setException(Throwable cause) {
+            stop();
+            super.setException(cause);
+        }
+
+        private void stop() {
+            if (start != NOT_STARTED) {
+                InstrumentedExecutorService.this.stop(start);
+                start = NOT_STARTED;
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (dequeue())
+                queued.dec();
+        }
+    }
+
+    // Wraps the tasks that are not created by this executor, that cannot be cancelled through it
+    private final class Execution implements Runnable, Dequeuing {
+
+        private final Runnable command;
+
+        private long submitted;
+
+        private Execution(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void enqueue() {
+            submitted = System.nanoTime();
+        }
+
+        @Override
+        public boolean dequeue() {
+            // Only called on rejection or when drained on shutdown, that exclude the execution of that task
+            return true;
+        }
+
+        @Override
+        public void run() {
+            long start = start(submitted);
+            try {
+                command.run();
+            } finally {
+                stop(start);
+            }
+        }
+    }
+}
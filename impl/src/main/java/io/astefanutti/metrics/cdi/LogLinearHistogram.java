@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import javax.enterprise.inject.Vetoed;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A log-linear bucketed histogram whose buckets can be updated concurrently and merged with each other.
+ *
+ * Values lower than {@code 64} are recorded exactly while greater values are recorded into buckets whose width
+ * grows with their magnitude, so that each bucket spans less than 1/32 of the values it contains. Values greater
+ * than {@link #HIGHEST_TRACKABLE_VALUE}, i.e. almost 5 hours when recording nanoseconds, are recorded into
+ * the highest bucket and negative values are recorded as zero.
+ */
+@Vetoed
+/* package-private */ final class LogLinearHistogram {
+
+    private static final int LINEAR_BUCKETS = 64;
+
+    private static final int LINEAR_EXPONENT = 6;
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int HIGHEST_EXPONENT = 43;
+
+    static final int BUCKETS = LINEAR_BUCKETS + (HIGHEST_EXPONENT - LINEAR_EXPONENT + 1) * SUB_BUCKETS;
+
+    static final long HIGHEST_TRACKABLE_VALUE = (1L << (HIGHEST_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long value) {
+        counts.incrementAndGet(index(value));
+    }
+
+    void record(long value, long count) {
+        counts.addAndGet(index(value), count);
+    }
+
+    void add(LogLinearHistogram histogram) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = histogram.counts.get(i);
+            if (count != 0)
+                counts.addAndGet(i, count);
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0L);
+    }
+
+    long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            count += counts.get(i);
+        return count;
+    }
+
+    long[] counts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] = this.counts.get(i);
+        return counts;
+    }
+
+    static int index(long value) {
+        if (value < LINEAR_BUCKETS)
+            return value < 0 ? 0 : (int) value;
+
+        long bounded = Math.min(value, HIGHEST_TRACKABLE_VALUE);
+        int exponent = 63 - Long.numberOfLeadingZeros(bounded);
+        int subBucket = (int) (bounded >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (exponent - LINEAR_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowestValue(int index) {
+        if (index < LINEAR_BUCKETS)
+            return index;
+
+        int bucket = index - LINEAR_BUCKETS;
+        int exponent = LINEAR_EXPONENT + bucket / SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long highestValue(int index) {
+        return index + 1 < BUCKETS ? lowestValue(index + 1) - 1 : HIGHEST_TRACKABLE_VALUE;
+    }
+
+    // The middle of the bucket bounds the relative error to half the bucket relative width
+    static long value(int index) {
+        long lowest = lowestValue(index);
+        return lowest + (highestValue(index) - lowest) / 2;
+    }
+}
@@ -38,15 +38,21 @@ import javax.interceptor.AroundTimeout;
 
     private final Bean<?> bean;
 
-    private final MetricRegistry registry;
-
     private final MetricResolver resolver;
 
+    private final MetricTags tags;
+
+    private final MetricsSwitch control;
+
+    private final RequestBuffers buffers;
+
     @Inject
-    private MeteredInterceptor(@Intercepted Bean<?> bean, MetricRegistry registry, MetricResolver resolver) {
+    private MeteredInterceptor(@Intercepted Bean<?> bean, MetricResolver resolver, MetricTags tags, MetricsExtension extension) {
         this.bean = bean;
-        this.registry = registry;
         this.resolver = resolver;
+        this.tags = tags;
+        this.control = extension.getControl();
+        this.buffers = extension.getRequestBuffers();
     }
 
     @AroundConstruct
@@ -65,12 +71,28 @@ import javax.interceptor.AroundTimeout;
     }
 
     private <E extends Member & AnnotatedElement> Object meteredCallable(InvocationContext context, E element) throws Exception {
-        String name = resolver.metered(bean.getBeanClass(), element).metricName();
+        if (!control.isEnabled(bean.getBeanClass(), element, Metered.class))
+            return context.proceed();
+
+        MetricResolver.Plan plan = resolver.plan(bean.getBeanClass(), element);
+        String name = plan.metered().metricName();
+        MetricRegistry registry = plan.registry();
         Meter meter = (Meter) registry.getMetrics().get(name);
         if (meter == null)
             throw new IllegalStateException("No meter with name [" + name + "] found in registry [" + registry + "]");
 
-        meter.mark();
+        mark(meter);
+        Meter tagged = tags.meter(registry, element, name, context.getParameters());
+        if (tagged != null)
+            mark(tagged);
         return context.proceed();
     }
+
+    private void mark(Meter meter) {
+        RequestBuffer buffer = buffers.current();
+        if (buffer != null)
+            buffer.mark(meter);
+        else
+            meter.mark();
+    }
 }
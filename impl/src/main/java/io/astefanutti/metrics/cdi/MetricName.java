@@ -26,4 +26,9 @@ import javax.enterprise.inject.spi.InjectionPoint;
 
     // TODO: expose an SPI so that external strategies can be provided. For example, Camel CDI could provide a property placeholder resolution strategy.
     String of(String attribute);
+
+    /**
+     * Returns whether the attribute contains expressions, whose values may change over time.
+     */
+    boolean isExpression(String attribute);
 }
@@ -15,10 +15,12 @@
  */
 package io.astefanutti.metrics.cdi;
 
+import com.codahale.metrics.Clock;
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 
@@ -40,30 +42,72 @@ import javax.interceptor.Interceptor;
     }
 
     @Produces
-    private static <T> Gauge<T> gauge(final InjectionPoint ip, final MetricRegistry registry, final MetricName metricName) {
+    private static <T> Gauge<T> gauge(InjectionPoint ip, MetricRegistry registry, MetricName metricName, GaugeRemovals removals) {
         // A forwarding Gauge must be returned as the Gauge creation happens when the declaring bean gets instantiated and the corresponding Gauge can be injected before which leads to producing a null value
-        return new Gauge<T>() {
-            @Override
-            @SuppressWarnings("unchecked")
-            public T getValue() {
-                // TODO: better error report when the gauge doesn't exist
-                return ((Gauge<T>) registry.getGauges().get(metricName.of(ip))).getValue();
-            }
-        };
+        return new ForwardingGauge<>(metricName.of(ip), registry, removals);
     }
 
     @Produces
-    private static Histogram histogram(InjectionPoint ip, MetricRegistry registry, MetricName metricName) {
-        return registry.histogram(metricName.of(ip));
+    private static Histogram histogram(InjectionPoint ip, MetricRegistry registry, MetricName metricName, Clock clock) {
+        return registry.histogram(metricName.of(ip), MetricSuppliers.histogram(clock, ip.getAnnotated().isAnnotationPresent(Recorded.class), ip.getAnnotated().getAnnotation(RollingWindow.class)));
     }
 
     @Produces
-    private static Meter meter(InjectionPoint ip, MetricRegistry registry, MetricName metricName) {
-        return registry.meter(metricName.of(ip));
+    private static Meter meter(InjectionPoint ip, MetricRegistry registry, MetricName metricName, Clock clock) {
+        return registry.meter(metricName.of(ip), MetricSuppliers.meter(clock));
     }
 
     @Produces
-    private static Timer timer(InjectionPoint ip, MetricRegistry registry, MetricName metricName) {
-        return registry.timer(metricName.of(ip));
+    private static Timer timer(InjectionPoint ip, MetricRegistry registry, MetricName metricName, Clock clock) {
+        return registry.timer(metricName.of(ip), MetricSuppliers.timer(clock, ip.getAnnotated().isAnnotationPresent(Recorded.class), ip.getAnnotated().getAnnotation(RollingWindow.class)));
     }
-}
\ No newline at end of file
+
+    private static final class ForwardingGauge<T> implements Gauge<T> {
+
+        private final String name;
+
+        private final MetricRegistry registry;
+
+        private final GaugeRemovals removals;
+
+        // The gauge and the generation it has been resolved for are published together
+        private volatile Resolved<T> resolved;
+
+        private ForwardingGauge(String name, MetricRegistry registry, GaugeRemovals removals) {
+            this.name = name;
+            this.registry = registry;
+            this.removals = removals;
+        }
+
+        @Override
+        public T getValue() {
+            Resolved<T> resolved = this.resolved;
+            if (resolved == null || resolved.generation != removals.generation())
+                this.resolved = resolved = resolve();
+            return resolved.gauge.getValue();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Resolved<T> resolve() {
+            // Read the generation before the lookup so that a concurrent removal invalidates the resolved gauge
+            long generation = removals.generation();
+            // The metrics map is a view that is not copied contrary to the map of gauges
+            Metric metric = registry.getMetrics().get(name);
+            if (!(metric instanceof Gauge))
+                throw new IllegalStateException("No gauge with name [" + name + "] found in registry [" + registry + "]");
+            return new Resolved<>((Gauge<T>) metric, generation);
+        }
+    }
+
+    private static final class Resolved<T> {
+
+        private final Gauge<T> gauge;
+
+        private final long generation;
+
+        private Resolved(Gauge<T> gauge, long generation) {
+            this.gauge = gauge;
+            this.generation = generation;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package io.astefanutti.metrics.cdi;
 
+import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.CachedGauge;
 import com.codahale.metrics.annotation.Counted;
@@ -25,12 +26,22 @@ import com.codahale.metrics.annotation.Timed;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Vetoed;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
 import javax.inject.Inject;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @ApplicationScoped
 /* package-private */ class MetricResolver {
@@ -41,48 +52,221 @@ import java.lang.reflect.Method;
     @Inject
     private MetricName metricName;
 
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private BeanManager manager;
+
+    // Cached for the classes without generated accessor as the concurrent map does not support null values
+    private static final GaugeAccessor NO_ACCESSOR = new GaugeAccessor() {
+        @Override
+        public Object get(Object target, String method) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getAsLong(Object target, String method) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public double getAsDouble(Object target, String method) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    // Resolved once per bean class and member as that requires reflection over the annotations and the metric names evaluation,
+    // except for the names containing expressions that still get evaluated per invocation
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Member, Plan>> plans = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, List<Method>> methods = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, GaugeAccessor> accessors = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, MetricRegistry> registries = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the metadata resolved once for the element of the bean, so that the interceptors look it up once per invocation.
+     */
+    <E extends Member & AnnotatedElement> Plan plan(Class<?> bean, E element) {
+        return planOf(bean, element);
+    }
+
     Of<CachedGauge> cachedGauge(Class<?> topClass, Method method) {
-        return resolverOf(topClass, method, CachedGauge.class);
+        return planOf(topClass, method).cachedGauge;
     }
 
-    <E extends Member & AnnotatedElement> Of<Counted> counted(Class<?> topClass, E element) {
-        return resolverOf(topClass, element, Counted.class);
+    Of<Gauge> gauge(Class<?> topClass, Method method) {
+        return planOf(topClass, method).gauge;
     }
 
-    <E extends Member & AnnotatedElement> Of<ExceptionMetered> exceptionMetered(Class<?> topClass, E element) {
-        return resolverOf(topClass, element, ExceptionMetered.class);
+    /**
+     * Returns the registry named by the {@link InRegistry} annotation declared for the element or the bean type hierarchy, or the default registry if none.
+     */
+    <E extends Member & AnnotatedElement> MetricRegistry registry(Class<?> bean, E element) {
+        return planOf(bean, element).registry;
     }
 
-    Of<Gauge> gauge(Class<?> topClass, Method method) {
-        return resolverOf(topClass, method, Gauge.class);
+    /**
+     * Returns the methods declared over the bean type hierarchy, excluding {@link Object}.
+     */
+    List<Method> methodsOf(Class<?> bean) {
+        List<Method> methods = this.methods.get(bean);
+        if (methods == null) {
+            methods = new ArrayList<>();
+            // TODO: discover annotations declared on implemented interfaces
+            for (Class<?> type = bean; type != null && !Object.class.equals(type); type = type.getSuperclass())
+                methods.addAll(Arrays.asList(type.getDeclaredMethods()));
+            methods = Collections.unmodifiableList(methods);
+            this.methods.putIfAbsent(bean, methods);
+        }
+        return methods;
+    }
+
+    /**
+     * Returns the gauge accessor generated at build time for the class declaring gauge methods, or {@code null} if none.
+     */
+    GaugeAccessor accessorOf(Class<?> type) {
+        GaugeAccessor accessor = accessors.get(type);
+        if (accessor == null) {
+            accessor = NO_ACCESSOR;
+            try {
+                accessor = Class.forName(type.getName() + GaugeAccessor.SUFFIX, true, type.getClassLoader()).asSubclass(GaugeAccessor.class).newInstance();
+            } catch (ClassNotFoundException | ClassCastException | InstantiationException | IllegalAccessException | LinkageError cause) {
+                // The gauge methods get read with reflection
+            }
+            accessors.putIfAbsent(type, accessor);
+        }
+        return accessor != NO_ACCESSOR ? accessor : null;
     }
 
-    <E extends Member & AnnotatedElement> Of<Metered> metered(Class<?> topClass, E element) {
-        return resolverOf(topClass, element, Metered.class);
+    private <E extends Member & AnnotatedElement> Plan planOf(Class<?> bean, E element) {
+        ConcurrentMap<Member, Plan> members = plans.get(bean);
+        if (members == null) {
+            ConcurrentMap<Member, Plan> existing = plans.putIfAbsent(bean, members = new ConcurrentHashMap<>());
+            if (existing != null)
+                members = existing;
+        }
+        Plan plan = members.get(element);
+        if (plan == null) {
+            // Concurrent resolutions of the same member are idempotent
+            plan = new Plan(bean, element);
+            members.putIfAbsent(element, plan);
+        }
+        return plan;
+    }
+
+    private <E extends Member & AnnotatedElement> boolean isRecorded(E element, Class<?> bean) {
+        if (element.isAnnotationPresent(Recorded.class))
+            return true;
+
+        for (Class<?> type = bean; type != null; type = type.getSuperclass())
+            if (type.isAnnotationPresent(Recorded.class))
+                return true;
+
+        return false;
+    }
+
+    private <E extends Member & AnnotatedElement> RollingWindow rollingWindow(E element, Class<?> bean) {
+        RollingWindow window = element.getAnnotation(RollingWindow.class);
+        for (Class<?> type = bean; window == null && type != null; type = type.getSuperclass())
+            window = type.getAnnotation(RollingWindow.class);
+
+        return window;
+    }
+
+    private <E extends Member & AnnotatedElement> long expectedInterval(E element, Class<?> bean) {
+        ExpectedInterval interval = element.getAnnotation(ExpectedInterval.class);
+        for (Class<?> type = bean; interval == null && type != null; type = type.getSuperclass())
+            interval = type.getAnnotation(ExpectedInterval.class);
+
+        return interval != null ? interval.unit().toNanos(interval.value()) : 0L;
+    }
+
+    private <E extends Member & AnnotatedElement> ThreadUsage threadUsage(E element, Class<?> bean) {
+        ThreadUsage usage = element.getAnnotation(ThreadUsage.class);
+        for (Class<?> type = bean; usage == null && type != null; type = type.getSuperclass())
+            usage = type.getAnnotation(ThreadUsage.class);
+
+        return usage;
+    }
+
+    private <E extends Member & AnnotatedElement> MetricRegistry registry(E element, Class<?> bean) {
+        InRegistry name = element.getAnnotation(InRegistry.class);
+        for (Class<?> type = bean; name == null && type != null; type = type.getSuperclass())
+            name = type.getAnnotation(InRegistry.class);
+
+        return name != null ? registryOf(name.value()) : registry;
+    }
+
+    boolean isRegistered(Metric metric) {
+        if (registry.getMetrics().containsValue(metric))
+            return true;
+        for (MetricRegistry registry : registries().values())
+            if (registry.getMetrics().containsValue(metric))
+                return true;
+        return false;
+    }
+
+    SortedMap<String, MetricRegistry> registries() {
+        SortedMap<String, MetricRegistry> registries = new TreeMap<>();
+        for (String name : extension.getRegistryNames())
+            registries.put(name, registryOf(name));
+        return registries;
     }
 
-    <E extends Member & AnnotatedElement> Of<Timed> timed(Class<?> bean, E element) {
-        return resolverOf(bean, element, Timed.class);
+    private MetricRegistry registryOf(String name) {
+        MetricRegistry registry = registries.get(name);
+        if (registry == null) {
+            // The named registries are validated at deployment time
+            Bean<?> bean = manager.resolve(manager.getBeans(MetricRegistry.class, new RegistryNameLiteral(name)));
+            registry = (MetricRegistry) manager.getReference(bean, MetricRegistry.class, manager.createCreationalContext(bean));
+            MetricRegistry existing = registries.putIfAbsent(name, registry);
+            if (existing != null)
+                registry = existing;
+            else
+                registry.addListener(RollingWindowReservoir.cumulativeHistograms(registry));
+        }
+        return registry;
     }
 
     private <E extends Member & AnnotatedElement, T extends Annotation> Of<T> resolverOf(Class<?> bean, E element, Class<T> metric) {
-        if (element.isAnnotationPresent(metric))
+        if (!extension.getFilter().isAnnotationInstrumented(metric))
+            return new DoesNotHaveMetric<>();
+        else if (element.isAnnotationPresent(metric))
             return elementResolverOf(element, metric);
         else
             return beanResolverOf(element, metric, bean);
     }
 
-    private <E extends Member & AnnotatedElement, T extends Annotation> Of<T> elementResolverOf(E element, Class<T> metric) {
+    private <E extends Member & AnnotatedElement, T extends Annotation> Of<T> elementResolverOf(final E element, final Class<T> metric) {
         T annotation = element.getAnnotation(metric);
-        String name = metricName(element, metric, metricName(annotation), isMetricAbsolute(annotation));
-        return new DoesHaveMetric<>(annotation, name);
+        final String name = metricName(annotation);
+        final boolean absolute = isMetricAbsolute(annotation);
+        if (metricName.isExpression(name))
+            return new DoesHaveExpressionMetric<T>(annotation) {
+                @Override
+                public String metricName() {
+                    return MetricResolver.this.metricName(element, metric, name, absolute);
+                }
+            };
+        return new DoesHaveMetric<>(annotation, metricName(element, metric, name, absolute));
     }
 
-    private <E extends Member & AnnotatedElement, T extends Annotation> Of<T> beanResolverOf(E element, Class<T> metric, Class<?> bean) {
+    private <E extends Member & AnnotatedElement, T extends Annotation> Of<T> beanResolverOf(final E element, final Class<T> metric, final Class<?> bean) {
         if (bean.isAnnotationPresent(metric)) {
             T annotation = bean.getAnnotation(metric);
-            String name = metricName(bean, element, metric, metricName(annotation), isMetricAbsolute(annotation));
-            return new DoesHaveMetric<>(annotation, name);
+            final String name = metricName(annotation);
+            final boolean absolute = isMetricAbsolute(annotation);
+            if (metricName.isExpression(name))
+                return new DoesHaveExpressionMetric<T>(annotation) {
+                    @Override
+                    public String metricName() {
+                        return MetricResolver.this.metricName(bean, element, metric, name, absolute);
+                    }
+                };
+            return new DoesHaveMetric<>(annotation, metricName(bean, element, metric, name, absolute));
         } else if (bean.getSuperclass() != null) {
         	return beanResolverOf(element, metric, bean.getSuperclass());
         }
@@ -155,6 +339,117 @@ import java.lang.reflect.Method;
             throw new IllegalArgumentException("Unsupported Metrics forMethod [" + annotation.getClass().getName() + "]");
     }
 
+    final class Plan {
+
+        private final Of<CachedGauge> cachedGauge;
+
+        private final Of<Counted> counted;
+
+        private final Of<ExceptionMetered> exceptionMetered;
+
+        private final Of<Gauge> gauge;
+
+        private final Of<Metered> metered;
+
+        private final Of<Timed> timed;
+
+        private final boolean recorded;
+
+        private final RollingWindow window;
+
+        private final long interval;
+
+        private final ThreadUsage usage;
+
+        private final MetricRegistry registry;
+
+        // The names derived from the timer name, or null if that name contains expressions
+        private final String corrected;
+
+        private final String cpu;
+
+        private final String allocated;
+
+        private <E extends Member & AnnotatedElement> Plan(Class<?> bean, E element) {
+            boolean method = element instanceof Method;
+            cachedGauge = method ? resolverOf(bean, element, CachedGauge.class) : new DoesNotHaveMetric<CachedGauge>();
+            counted = resolverOf(bean, element, Counted.class);
+            exceptionMetered = resolverOf(bean, element, ExceptionMetered.class);
+            gauge = method ? resolverOf(bean, element, Gauge.class) : new DoesNotHaveMetric<Gauge>();
+            metered = resolverOf(bean, element, Metered.class);
+            timed = resolverOf(bean, element, Timed.class);
+            recorded = MetricResolver.this.isRecorded(element, bean);
+            window = MetricResolver.this.rollingWindow(element, bean);
+            interval = MetricResolver.this.expectedInterval(element, bean);
+            usage = MetricResolver.this.threadUsage(element, bean);
+            registry = MetricResolver.this.registry(element, bean);
+            boolean constant = timed instanceof DoesHaveMetric;
+            corrected = constant ? MetricRegistry.name(timed.metricName(), TimedInterceptor.CORRECTED) : null;
+            cpu = constant ? MetricRegistry.name(timed.metricName(), ThreadResources.CPU) : null;
+            allocated = constant ? MetricRegistry.name(timed.metricName(), ThreadResources.ALLOCATED) : null;
+        }
+
+        Of<Counted> counted() {
+            return counted;
+        }
+
+        Of<ExceptionMetered> exceptionMetered() {
+            return exceptionMetered;
+        }
+
+        Of<Metered> metered() {
+            return metered;
+        }
+
+        Of<Timed> timed() {
+            return timed;
+        }
+
+        boolean isRecorded() {
+            return recorded;
+        }
+
+        /**
+         * Returns the rolling window annotation declared for the element or the bean type hierarchy, or {@code null} if none.
+         */
+        RollingWindow rollingWindow() {
+            return window;
+        }
+
+        /**
+         * Returns the expected interval, in nanoseconds, declared for the element or the bean type hierarchy, or zero if none.
+         */
+        long expectedInterval() {
+            return interval;
+        }
+
+        /**
+         * Returns the thread usage annotation declared for the element or the bean type hierarchy, or {@code null} if none.
+         */
+        ThreadUsage threadUsage() {
+            return usage;
+        }
+
+        /**
+         * Returns the registry named by the {@link InRegistry} annotation declared for the element or the bean type hierarchy, or the default registry if none.
+         */
+        MetricRegistry registry() {
+            return registry;
+        }
+
+        String correctedName(String timer) {
+            return corrected != null ? corrected : MetricRegistry.name(timer, TimedInterceptor.CORRECTED);
+        }
+
+        String cpuName(String timer) {
+            return cpu != null ? cpu : MetricRegistry.name(timer, ThreadResources.CPU);
+        }
+
+        String allocatedName(String timer) {
+            return allocated != null ? allocated : MetricRegistry.name(timer, ThreadResources.ALLOCATED);
+        }
+    }
+
     interface Of<T extends Annotation> {
 
         boolean isPresent();
@@ -191,6 +486,26 @@ import java.lang.reflect.Method;
         }
     }
 
+    // Evaluates the metric name on each call as the values of its expressions may change over time
+    private abstract static class DoesHaveExpressionMetric<T extends Annotation> implements Of<T> {
+
+        private final T annotation;
+
+        private DoesHaveExpressionMetric(T annotation) {
+            this.annotation = annotation;
+        }
+
+        @Override
+        public boolean isPresent() {
+            return true;
+        }
+
+        @Override
+        public T metricAnnotation() {
+            return annotation;
+        }
+    }
+
     @Vetoed
     private static final class DoesNotHaveMetric<T extends Annotation> implements Of<T> {
 
@@ -0,0 +1,84 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import javax.enterprise.inject.Vetoed;
+
+@Vetoed
+/* package-private */ final class MetricSuppliers {
+
+    // The defaults of the exponentially decaying reservoir, whose constructor taking a clock requires them
+    private static final int RESERVOIR_SIZE = 1028;
+
+    private static final double RESERVOIR_ALPHA = 0.015;
+
+    private static final MetricRegistry.MetricSupplier<Histogram> DEFAULT_HISTOGRAM = new MetricRegistry.MetricSupplier<Histogram>() {
+        @Override
+        public Histogram newMetric() {
+            return new Histogram(new ExponentiallyDecayingReservoir());
+        }
+    };
+
+    private MetricSuppliers() {
+    }
+
+    static MetricRegistry.MetricSupplier<Timer> timer(Clock clock, boolean recorded) {
+        return timer(clock, recorded, null);
+    }
+
+    /**
+     * Returns a supplier of timers whose reservoir is a rolling window if any, which takes precedence over recording.
+     */
+    static MetricRegistry.MetricSupplier<Timer> timer(final Clock clock, final boolean recorded, RollingWindow window) {
+        if (window != null)
+            return RollingWindowReservoir.timer(clock, window);
+
+        return new MetricRegistry.MetricSupplier<Timer>() {
+            @Override
+            public Timer newMetric() {
+                if (recorded)
+                    return new Timer(new RecorderReservoir(), clock);
+                else
+                    return new Timer(new ExponentiallyDecayingReservoir(RESERVOIR_SIZE, RESERVOIR_ALPHA, clock), clock);
+            }
+        };
+    }
+
+    static MetricRegistry.MetricSupplier<Histogram> histogram(Clock clock, boolean recorded, RollingWindow window) {
+        if (window != null)
+            return RollingWindowReservoir.histogram(clock, window);
+        else if (recorded)
+            return RecorderReservoir.HISTOGRAM;
+        else
+            return DEFAULT_HISTOGRAM;
+    }
+
+    static MetricRegistry.MetricSupplier<Meter> meter(final Clock clock) {
+        return new MetricRegistry.MetricSupplier<Meter>() {
+            @Override
+            public Meter newMetric() {
+                return new Meter(clock);
+            }
+        };
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation requesting the value of the annotated parameter to be appended to the name of the metrics of the
+ * invoked method, so that these metrics get split by that value, e.g.:
+ * <pre>{@code
+ * @Timed(name = "orders")
+ * public void placeOrder(@MetricTag Tier tier, Order order) {
+ *     // Timer names => OrderService.orders and OrderService.orders.GOLD, OrderService.orders.SILVER, ...
+ * }
+ * }</pre>
+ *
+ * The metrics named after the method, without the parameter values, are still updated and aggregate all the invocations.
+ * It applies to the {@link com.codahale.metrics.annotation.Counted}, {@link com.codahale.metrics.annotation.Metered}
+ * and {@link com.codahale.metrics.annotation.Timed} metrics, and the values of several annotated parameters are
+ * appended in the parameters order.
+ *
+ * The number of distinct values of a parameter is bounded: enum parameters are bounded by their constants, the other
+ * parameters either by the known {@link #values()}, if any, or by the {@link #limit()}. The values that exceed that
+ * bound, as well as {@code null} values, are accounted for with the {@value #OTHER} value.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface MetricTag {
+
+    /**
+     * The value accounting for the values that exceed the cardinality bound.
+     */
+    String OTHER = "{other}";
+
+    /**
+     * @return the known values of the parameter, whose string representations are matched, the other values being
+     * accounted for with the {@value #OTHER} value
+     */
+    String[] values() default {};
+
+    /**
+     * @return the maximum number of distinct values of the parameter when no known values are declared
+     */
+    int limit() default 100;
+}
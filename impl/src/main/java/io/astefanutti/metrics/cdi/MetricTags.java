@@ -0,0 +1,339 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+@ApplicationScoped
+/* package-private */ class MetricTags {
+
+    // The maximum number of combinations of the tagged parameter values of a member, validated at deployment time
+    static final int MAX_METRICS = 1 << 16;
+
+    // Cached for the members without tagged parameters as the concurrent map does not support null values
+    private static final Tags[] UNTAGGED = new Tags[0];
+
+    // The tables are kept per metric type and member, and then per registry and metric name as a member can be declared
+    // with several of these, e.g. by beans in distinct registries, while overloads can share a name
+    private final ConcurrentMap<Member, Tags[]> counters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Member, Tags[]> meters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Member, Tags[]> timers = new ConcurrentHashMap<>();
+
+    @Inject
+    private Clock clock;
+
+    Timer timer(MetricRegistry registry, Member member, String name, boolean recorded, RollingWindow window, Object[] arguments) {
+        Tags tags = tagsOf(timers, registry, member, name);
+        if (tags == null)
+            return null;
+
+        int index = tags.index(arguments);
+        Timer timer = (Timer) tags.get(index);
+        if (timer == null) {
+            // The registry returns the existing timer on concurrent registration
+            timer = registry.timer(tags.name(index), MetricSuppliers.timer(clock, recorded, window));
+            tags.set(index, timer);
+        }
+        return timer;
+    }
+
+    Meter meter(MetricRegistry registry, Member member, String name, Object[] arguments) {
+        Tags tags = tagsOf(meters, registry, member, name);
+        if (tags == null)
+            return null;
+
+        int index = tags.index(arguments);
+        Meter meter = (Meter) tags.get(index);
+        if (meter == null) {
+            meter = registry.meter(tags.name(index), MetricSuppliers.meter(clock));
+            tags.set(index, meter);
+        }
+        return meter;
+    }
+
+    Counter counter(MetricRegistry registry, Member member, String name, Object[] arguments) {
+        Tags tags = tagsOf(counters, registry, member, name);
+        if (tags == null)
+            return null;
+
+        int index = tags.index(arguments);
+        Counter counter = (Counter) tags.get(index);
+        if (counter == null) {
+            counter = registry.counter(tags.name(index));
+            tags.set(index, counter);
+        }
+        return counter;
+    }
+
+    // Returns the table of the member for the registry and the metric name, or null if the member has no tagged parameters
+    private static Tags tagsOf(ConcurrentMap<Member, Tags[]> tables, MetricRegistry registry, Member member, String name) {
+        Tags[] cached = tables.get(member);
+        if (cached == UNTAGGED)
+            return null;
+        // Members are mostly declared with a single registry and name so that the lookup is a short scan that does not allocate
+        Tags tags = tagsOf(cached, registry, name);
+        if (tags != null)
+            return tags;
+
+        // Tables get added rarely so that these are copied on write
+        synchronized (tables) {
+            Tags[] existing = tables.get(member);
+            if (existing == UNTAGGED)
+                return null;
+            tags = tagsOf(existing, registry, name);
+            if (tags != null)
+                return tags;
+
+            Dimension[] dimensions = dimensions(parameterTypes(member), parameterAnnotations(member));
+            if (dimensions.length == 0) {
+                tables.put(member, UNTAGGED);
+                return null;
+            }
+            tags = new Tags(registry, name, dimensions);
+            if (existing == null) {
+                tables.put(member, new Tags[]{tags});
+            } else {
+                Tags[] added = Arrays.copyOf(existing, existing.length + 1);
+                added[existing.length] = tags;
+                tables.put(member, added);
+            }
+            return tags;
+        }
+    }
+
+    private static Tags tagsOf(Tags[] tables, MetricRegistry registry, String name) {
+        if (tables != null)
+            for (Tags tags : tables)
+                if (tags.registry == registry && tags.name.equals(name))
+                    return tags;
+        return null;
+    }
+
+    // Returns the number of combinations of the tagged parameter values of the member, or the first count that exceeds the maximum
+    static long combinations(Member member) {
+        Class<?>[] types = parameterTypes(member);
+        Annotation[][] annotations = parameterAnnotations(member);
+        long combinations = 1;
+        for (int i = 0; i < annotations.length && combinations <= MAX_METRICS; i++)
+            for (Annotation annotation : annotations[i])
+                if (annotation instanceof MetricTag)
+                    combinations *= Dimension.size(types[i], (MetricTag) annotation);
+
+        return combinations;
+    }
+
+    static boolean isTagged(Member member) {
+        for (Annotation[] annotations : parameterAnnotations(member))
+            for (Annotation annotation : annotations)
+                if (annotation instanceof MetricTag)
+                    return true;
+        return false;
+    }
+
+    private static Dimension[] dimensions(Class<?>[] types, Annotation[][] annotations) {
+        List<Dimension> dimensions = new ArrayList<>();
+        for (int i = 0; i < annotations.length; i++)
+            for (Annotation annotation : annotations[i])
+                if (annotation instanceof MetricTag)
+                    dimensions.add(new Dimension(i, types[i], (MetricTag) annotation));
+
+        return dimensions.toArray(new Dimension[dimensions.size()]);
+    }
+
+    private static Class<?>[] parameterTypes(Member member) {
+        if (member instanceof Method)
+            return ((Method) member).getParameterTypes();
+        else
+            return ((Constructor<?>) member).getParameterTypes();
+    }
+
+    private static Annotation[][] parameterAnnotations(Member member) {
+        if (member instanceof Method)
+            return ((Method) member).getParameterAnnotations();
+        else
+            return ((Constructor<?>) member).getParameterAnnotations();
+    }
+
+    private static final class Tags {
+
+        private static final int PAGE = 64;
+
+        private final MetricRegistry registry;
+
+        private final String name;
+
+        private final Dimension[] dimensions;
+
+        // Indexed by the combination of the dimension indexes so that the lookup of a tagged metric does not allocate,
+        // with the pages of slots allocated on first use as only a few combinations generally occur
+        private final AtomicReferenceArray<AtomicReferenceArray<Metric>> pages;
+
+        private Tags(MetricRegistry registry, String name, Dimension[] dimensions) {
+            this.registry = registry;
+            this.name = name;
+            this.dimensions = dimensions;
+            long size = 1;
+            for (Dimension dimension : dimensions)
+                if ((size *= dimension.size) > MAX_METRICS)
+                    throw new IllegalStateException("Tagged metric [" + name + "] exceeds the maximum of [" + MAX_METRICS + "] metrics");
+            this.pages = new AtomicReferenceArray<>((int) (size + PAGE - 1) / PAGE);
+        }
+
+        Metric get(int index) {
+            AtomicReferenceArray<Metric> page = pages.get(index / PAGE);
+            return page != null ? page.get(index % PAGE) : null;
+        }
+
+        void set(int index, Metric metric) {
+            AtomicReferenceArray<Metric> page = pages.get(index / PAGE);
+            if (page == null) {
+                pages.compareAndSet(index / PAGE, null, new AtomicReferenceArray<Metric>(PAGE));
+                page = pages.get(index / PAGE);
+            }
+            page.set(index % PAGE, metric);
+        }
+
+        int index(Object[] arguments) {
+            int index = 0;
+            for (Dimension dimension : dimensions)
+                index = index * dimension.size + dimension.index(arguments[dimension.parameter]);
+            return index;
+        }
+
+        String name(int index) {
+            String[] values = new String[dimensions.length];
+            for (int i = dimensions.length - 1; i >= 0; i--) {
+                values[i] = dimensions[i].value(index % dimensions[i].size);
+                index /= dimensions[i].size;
+            }
+            return MetricRegistry.name(name, values);
+        }
+    }
+
+    private static final class Dimension {
+
+        private final int parameter;
+
+        // The last index accounts for the overflow
+        private final int size;
+
+        private final Object[] constants;
+
+        private final Map<String, Integer> known;
+
+        private final ConcurrentMap<String, Integer> values;
+
+        private int next;
+
+        private final AtomicReferenceArray<String> names;
+
+        private Dimension(int parameter, Class<?> type, MetricTag tag) {
+            this.parameter = parameter;
+            if (type.isEnum()) {
+                constants = type.getEnumConstants();
+                known = null;
+                values = null;
+                size = constants.length + 1;
+                names = new AtomicReferenceArray<>(size);
+                for (int i = 0; i < constants.length; i++)
+                    names.set(i, ((Enum<?>) constants[i]).name());
+            } else if (tag.values().length > 0) {
+                constants = null;
+                known = new HashMap<>();
+                values = null;
+                size = tag.values().length + 1;
+                names = new AtomicReferenceArray<>(size);
+                for (int i = 0; i < tag.values().length; i++) {
+                    known.put(tag.values()[i], i);
+                    names.set(i, tag.values()[i]);
+                }
+            } else {
+                if (tag.limit() < 1)
+                    throw new IllegalArgumentException("Metric tag limit must be strictly positive: " + tag.limit());
+                constants = null;
+                known = null;
+                values = new ConcurrentHashMap<>();
+                size = tag.limit() + 1;
+                names = new AtomicReferenceArray<>(size);
+            }
+            names.set(size - 1, MetricTag.OTHER);
+        }
+
+        static int size(Class<?> type, MetricTag tag) {
+            if (type.isEnum())
+                return type.getEnumConstants().length + 1;
+            else if (tag.values().length > 0)
+                return tag.values().length + 1;
+            else
+                return Math.max(tag.limit(), 0) + 1;
+        }
+
+        int index(Object argument) {
+            if (argument == null)
+                return size - 1;
+            if (constants != null)
+                return ((Enum<?>) argument).ordinal();
+
+            String value = argument.toString();
+            if (known != null) {
+                Integer index = known.get(value);
+                return index != null ? index : size - 1;
+            }
+
+            Integer index = values.get(value);
+            if (index != null)
+                return index;
+            // Values get assigned an index until the limit is reached and the overflow index afterwards
+            synchronized (this) {
+                index = values.get(value);
+                if (index != null)
+                    return index;
+                if (next == size - 1)
+                    return size - 1;
+                index = next++;
+                names.set(index, value);
+                values.put(value, index);
+                return index;
+            }
+        }
+
+        String value(int index) {
+            return names.get(index);
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package io.astefanutti.metrics.cdi;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * The Metrics CDI configuration. Metrics CDI fires a {@code MetricsConfiguration} event
  * during the deployment phase that the application can observe and use to configure it.
@@ -30,4 +32,72 @@ public interface MetricsConfiguration {
      * @throws IllegalStateException if called outside of the observer method invocation
      */
     MetricsConfiguration useAbsoluteName(boolean useAbsoluteName);
+
+    /**
+     * Accumulates the updates of the monotonic counters, meters and timers performed within an active request context
+     * into a buffer confined to the request thread, that gets flushed into the shared metrics when the request context is destroyed.
+     * That trades a reporting delay, bounded by the request duration, for less contention on the metrics updated many times per request.
+     * It requires the {@code metrics.cdi.request.buffer} deployment property to be set to {@code true}, which enables it by default.
+     *
+     * @return this Metrics CDI configuration
+     * @throws IllegalStateException if called outside of the observer method invocation
+     */
+    MetricsConfiguration useRequestBuffer(boolean useRequestBuffer);
+
+    /**
+     * Gets the references of the metrics produced by the application concurrently, with as many threads as available processors,
+     * before registering them. That shortens the deployment of applications declaring many metric producers
+     * and requires the container bean manager to be thread-safe. The producers are invoked from threads that have none
+     * of the contexts the container associates with the deployment thread, like the naming or security contexts,
+     * so that only the producers that do not depend on them benefit from it, the others being invoked again
+     * from the deployment thread when they fail.
+     *
+     * @return this Metrics CDI configuration
+     * @throws IllegalStateException if called outside of the observer method invocation
+     */
+    MetricsConfiguration useParallelRegistration(boolean useParallelRegistration);
+
+    /**
+     * Sets the threshold above which the timed invocations are captured by the {@link SlowInvocations}. The capture is disabled by default.
+     *
+     * @return this Metrics CDI configuration
+     * @throws IllegalStateException if called outside of the observer method invocation
+     */
+    MetricsConfiguration slowInvocationThreshold(long threshold, TimeUnit unit);
+
+    /**
+     * Captures a truncated string representation of the arguments of the slow invocations instead of their types only.
+     * As the arguments may contain credentials or personal data, that would get exposed via JMX and HTTP, their values are not captured by default.
+     *
+     * @return this Metrics CDI configuration
+     * @throws IllegalStateException if called outside of the observer method invocation
+     */
+    MetricsConfiguration useSlowInvocationArguments(boolean useSlowInvocationArguments);
+
+    /**
+     * Enables the tracking of the {@link Hotspots}, whose rankings get computed with the given period. The tracking is disabled by default.
+     *
+     * @return this Metrics CDI configuration
+     * @throws IllegalStateException if called outside of the observer method invocation
+     */
+    MetricsConfiguration trackHotspots(long period, TimeUnit unit);
+
+    /**
+     * Replaces the clock of the timers and meters managed by Metrics CDI with a {@link CoarseClock} updated at the given resolution,
+     * unless the application declares a {@link com.codahale.metrics.Clock} bean.
+     *
+     * @return this Metrics CDI configuration
+     * @throws IllegalStateException if called outside of the observer method invocation
+     */
+    MetricsConfiguration useCoarseClock(long resolution, TimeUnit unit);
+
+    /**
+     * Registers the durations and counts of the deployment phases of Metrics CDI as gauges named {@code metrics.cdi.startup.<phase>.time},
+     * in nanoseconds, and {@code metrics.cdi.startup.<phase>.count}, for the {@code bindings}, {@code decorations}, {@code producers}
+     * and {@code registration} phases. These are always summarized in the log once the deployment is validated.
+     *
+     * @return this Metrics CDI configuration
+     * @throws IllegalStateException if called outside of the observer method invocation
+     */
+    MetricsConfiguration useStartupMetrics(boolean useStartupMetrics);
 }
@@ -19,11 +19,18 @@ package io.astefanutti.metrics.cdi;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /* package-private */ final class MetricsConfigurationEvent implements MetricsConfiguration {
 
     private final EnumSet<MetricsParameter> configuration = EnumSet.noneOf(MetricsParameter.class);
 
+    private long slowInvocationThreshold;
+
+    private long hotspotsPeriod;
+
+    private long coarseClockResolution;
+
     private volatile boolean unmodifiable;
 
     @Override
@@ -36,10 +43,89 @@ import java.util.Set;
         return this;
     }
 
+    @Override
+    public MetricsConfiguration useRequestBuffer(boolean useRequestBuffer) {
+        throwsIfUnmodifiable();
+        if (useRequestBuffer)
+            configuration.add(MetricsParameter.useRequestBuffer);
+        else
+            configuration.remove(MetricsParameter.useRequestBuffer);
+        return this;
+    }
+
+    @Override
+    public MetricsConfiguration useParallelRegistration(boolean useParallelRegistration) {
+        throwsIfUnmodifiable();
+        if (useParallelRegistration)
+            configuration.add(MetricsParameter.useParallelRegistration);
+        else
+            configuration.remove(MetricsParameter.useParallelRegistration);
+        return this;
+    }
+
+    @Override
+    public MetricsConfiguration slowInvocationThreshold(long threshold, TimeUnit unit) {
+        throwsIfUnmodifiable();
+        if (threshold < 0)
+            throw new IllegalArgumentException("Slow invocation threshold must be positive or zero: " + threshold);
+        slowInvocationThreshold = unit.toNanos(threshold);
+        return this;
+    }
+
+    @Override
+    public MetricsConfiguration useSlowInvocationArguments(boolean useSlowInvocationArguments) {
+        throwsIfUnmodifiable();
+        if (useSlowInvocationArguments)
+            configuration.add(MetricsParameter.useSlowInvocationArguments);
+        else
+            configuration.remove(MetricsParameter.useSlowInvocationArguments);
+        return this;
+    }
+
+    @Override
+    public MetricsConfiguration trackHotspots(long period, TimeUnit unit) {
+        throwsIfUnmodifiable();
+        if (period <= 0)
+            throw new IllegalArgumentException("Hotspots tracking period must be positive: " + period);
+        hotspotsPeriod = unit.toNanos(period);
+        return this;
+    }
+
+    @Override
+    public MetricsConfiguration useCoarseClock(long resolution, TimeUnit unit) {
+        throwsIfUnmodifiable();
+        if (resolution <= 0)
+            throw new IllegalArgumentException("Coarse clock resolution must be strictly positive: " + resolution);
+        coarseClockResolution = unit.toNanos(resolution);
+        return this;
+    }
+
+    @Override
+    public MetricsConfiguration useStartupMetrics(boolean useStartupMetrics) {
+        throwsIfUnmodifiable();
+        if (useStartupMetrics)
+            configuration.add(MetricsParameter.useStartupMetrics);
+        else
+            configuration.remove(MetricsParameter.useStartupMetrics);
+        return this;
+    }
+
     Set<MetricsParameter> getParameters() {
         return Collections.unmodifiableSet(configuration);
     }
 
+    long getSlowInvocationThreshold() {
+        return slowInvocationThreshold;
+    }
+
+    long getHotspotsPeriod() {
+        return hotspotsPeriod;
+    }
+
+    long getCoarseClockResolution() {
+        return coarseClockResolution;
+    }
+
     void unmodifiable() {
         unmodifiable = true;
     }
@@ -0,0 +1,95 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+/**
+ * Controls at runtime whether the Metrics CDI interceptors update the metrics of the intercepted beans.
+ *
+ * The metrics can be disabled globally, per Metrics annotation type, per bean class or per method. The intercepted
+ * invocations of the disabled elements directly proceed without updating their metrics, which remain registered
+ * so that they resume being updated when re-enabled. The metrics are enabled by default.
+ *
+ * A {@code MetricsControl} bean is available for injection, e.g.:
+ * <pre>{@code
+ * @Inject
+ * MetricsControl control;
+ *
+ * void incident() {
+ *     control.setAnnotationEnabled(Timed.class, false);
+ * }
+ * }</pre>
+ *
+ * The same operations are exposed via JMX by the {@link MetricsControlMXBean}.
+ */
+public interface MetricsControl {
+
+    /**
+     * @return whether the metrics are globally enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Enables or disables the metrics globally, regardless of the other settings.
+     *
+     * @param enabled whether the metrics are enabled
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @param annotation the Metrics annotation type, e.g. {@code Timed.class}
+     * @return whether the metrics of that annotation type are enabled
+     */
+    boolean isAnnotationEnabled(Class<? extends Annotation> annotation);
+
+    /**
+     * Enables or disables the metrics of the given Metrics annotation type.
+     *
+     * @param annotation the Metrics annotation type, e.g. {@code Timed.class}
+     * @param enabled whether the metrics of that annotation type are enabled
+     */
+    void setAnnotationEnabled(Class<? extends Annotation> annotation, boolean enabled);
+
+    /**
+     * @param bean the bean class
+     * @return whether the metrics of that bean class are enabled
+     */
+    boolean isBeanEnabled(Class<?> bean);
+
+    /**
+     * Enables or disables the metrics of the given bean class.
+     *
+     * @param bean the bean class
+     * @param enabled whether the metrics of that bean class are enabled
+     */
+    void setBeanEnabled(Class<?> bean, boolean enabled);
+
+    /**
+     * @param method the bean method
+     * @return whether the metrics of that method are enabled
+     */
+    boolean isMethodEnabled(Method method);
+
+    /**
+     * Enables or disables the metrics of the given method, including its overloads.
+     *
+     * @param method the bean method
+     * @param enabled whether the metrics of that method are enabled
+     */
+    void setMethodEnabled(Method method, boolean enabled);
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+/**
+ * The JMX management interface of the {@link MetricsControl}, registered with the
+ * {@code io.astefanutti.metrics.cdi:type=MetricsControl} object name.
+ *
+ * Targets are identified by name, that is either the simple or fully qualified name of a Metrics annotation type,
+ * e.g. {@code Timed}, the fully qualified name of a bean class, e.g. {@code com.acme.OrderService},
+ * or the fully qualified name of a bean class followed by {@code #} and the name of a method,
+ * e.g. {@code com.acme.OrderService#placeOrder}.
+ */
+public interface MetricsControlMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return the names of the disabled targets
+     */
+    String[] getDisabled();
+
+    /**
+     * @param target the name of the target to enable
+     */
+    void enable(String target);
+
+    /**
+     * @param target the name of the target to disable
+     */
+    void disable(String target);
+}
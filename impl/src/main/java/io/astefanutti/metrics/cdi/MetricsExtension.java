@@ -15,6 +15,7 @@
  */
 package io.astefanutti.metrics.cdi;
 
+import com.codahale.metrics.Clock;
 import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.MetricSet;
@@ -27,8 +28,10 @@ import com.codahale.metrics.annotation.Timed;
 
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.Default;
+import javax.enterprise.inject.Produces;
 import javax.enterprise.inject.spi.AfterBeanDiscovery;
 import javax.enterprise.inject.spi.AfterDeploymentValidation;
+import javax.enterprise.inject.spi.AnnotatedConstructor;
 import javax.enterprise.inject.spi.AnnotatedMember;
 import javax.enterprise.inject.spi.AnnotatedMethod;
 import javax.enterprise.inject.spi.AnnotatedParameter;
@@ -36,59 +39,221 @@ import javax.enterprise.inject.spi.AnnotatedType;
 import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.BeforeBeanDiscovery;
+import javax.enterprise.inject.spi.BeforeShutdown;
 import javax.enterprise.inject.spi.Extension;
 import javax.enterprise.inject.spi.InjectionPoint;
 import javax.enterprise.inject.spi.ProcessAnnotatedType;
+import javax.enterprise.inject.spi.ProcessProducer;
 import javax.enterprise.inject.spi.ProcessProducerField;
 import javax.enterprise.inject.spi.ProcessProducerMethod;
 import javax.enterprise.inject.spi.WithAnnotations;
 import javax.enterprise.util.AnnotationLiteral;
 import javax.enterprise.util.Nonbinding;
 import javax.interceptor.InterceptorBinding;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 public class MetricsExtension implements Extension {
 
+    private static final Logger LOGGER = Logger.getLogger(MetricsExtension.class.getName());
+
     private static final AnnotationLiteral<Nonbinding> NON_BINDING = new AnnotationLiteral<Nonbinding>(){};
 
     private static final AnnotationLiteral<InterceptorBinding> INTERCEPTOR_BINDING = new AnnotationLiteral<InterceptorBinding>(){};
 
     private static final AnnotationLiteral<MetricsBinding> METRICS_BINDING = new AnnotationLiteral<MetricsBinding>(){};
 
+    private static final AnnotationLiteral<ObserverBinding> OBSERVER_BINDING = new AnnotationLiteral<ObserverBinding>(){};
+
+    private static final AnnotationLiteral<ProducerBinding> PRODUCER_BINDING = new AnnotationLiteral<ProducerBinding>(){};
+
     private static final AnnotationLiteral<Default> DEFAULT = new AnnotationLiteral<Default>(){};
 
     private final Map<Bean<?>, AnnotatedMember<?>> metrics = new HashMap<>();
 
     private final MetricsConfigurationEvent configuration = new MetricsConfigurationEvent();
 
+    private final MetricsSwitch control = new MetricsSwitch();
+
+    private final SlowInvocationBuffer slowInvocations = new SlowInvocationBuffer();
+
+    private final HotspotTracker hotspots = new HotspotTracker();
+
+    private final RequestBuffers requestBuffers = new RequestBuffers();
+
+    // The metrics produced per injection point, weakly referenced so that the metrics removed from their registry can be collected
+    private final Map<Metric, Method> producedMetrics = Collections.synchronizedMap(new WeakHashMap<Metric, Method>());
+
+    private final StartupMetrics startup = new StartupMetrics();
+
+    private final List<ObjectName> mbeans = new ArrayList<>();
+
+    // The lifecycle events may be fired concurrently by the container
+    private final Set<String> registryNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final Set<Member> taggedMembers = Collections.newSetFromMap(new ConcurrentHashMap<Member, Boolean>());
+
+    private InstrumentationFilter filter;
+
+    private boolean timedEvents;
+
+    private boolean requestBuffer;
+
     Set<MetricsParameter> getParameters() {
         return configuration.getParameters();
     }
 
+    MetricsSwitch getControl() {
+        return control;
+    }
+
+    SlowInvocationBuffer getSlowInvocations() {
+        return slowInvocations;
+    }
+
+    HotspotTracker getHotspots() {
+        return hotspots;
+    }
+
+    RequestBuffers getRequestBuffers() {
+        return requestBuffers;
+    }
+
+    Map<Metric, Method> getProducedMetrics() {
+        return producedMetrics;
+    }
+
+    Set<String> getRegistryNames() {
+        return Collections.unmodifiableSet(registryNames);
+    }
+
+    InstrumentationFilter getFilter() {
+        return filter;
+    }
+
     private void addInterceptorBindings(@Observes BeforeBeanDiscovery bbd, BeanManager manager) {
+        long start = startup.start();
+        // Read the deployment properties as the configuration event is fired after the type discovery
+        Properties properties = MetricsProperties.load();
+        filter = new InstrumentationFilter(properties);
+        timedEvents = Boolean.parseBoolean(properties.getProperty(MetricsProperties.EVENTS));
+        requestBuffer = Boolean.parseBoolean(properties.getProperty(MetricsProperties.REQUEST_BUFFER));
+        // The configuration event can still disable it
+        configuration.useRequestBuffer(requestBuffer);
+
         declareAsInterceptorBinding(Counted.class, manager, bbd);
         declareAsInterceptorBinding(ExceptionMetered.class, manager, bbd);
         declareAsInterceptorBinding(Metered.class, manager, bbd);
         declareAsInterceptorBinding(Timed.class, manager, bbd);
+        startup.record(StartupMetrics.Phase.bindings, start, 4L);
     }
 
     private <X> void metricsAnnotations(@Observes @WithAnnotations({CachedGauge.class, Counted.class, ExceptionMetered.class, Gauge.class, Metered.class, Timed.class}) ProcessAnnotatedType<X> pat) {
-        pat.setAnnotatedType(new AnnotatedTypeDecorator<>(pat.getAnnotatedType(), METRICS_BINDING));
+        long start = startup.start();
+        AnnotatedType<X> type = pat.getAnnotatedType();
+        collectRegistryNames(type);
+        collectTaggedMembers(type);
+        // Hide the excluded metrics annotations so that they do not get bound to the metrics interceptors
+        Set<Class<? extends Annotation>> excluded = filter.isInstrumented(type.getJavaClass()) ? filter.getExcludedAnnotations() : InstrumentationFilter.ANNOTATIONS;
+        if (!excluded.isEmpty())
+            type = new AnnotatedTypeFilter<>(type, excluded);
+        if (!excluded.containsAll(InstrumentationFilter.ANNOTATIONS))
+            type = new AnnotatedTypeDecorator<>(type, METRICS_BINDING);
+
+        pat.setAnnotatedType(type);
+        startup.record(StartupMetrics.Phase.decorations, start, 1);
+    }
+
+    private <X> void observerMethods(@Observes @WithAnnotations(Observes.class) ProcessAnnotatedType<X> pat) {
+        // Skip extensions as their observer methods are not business methods, and Metrics CDI own observers
+        Class<X> type = pat.getAnnotatedType().getJavaClass();
+        if (!timedEvents || Extension.class.isAssignableFrom(type) || MetricsExtension.class.getPackage().equals(type.getPackage()) || !filter.isInstrumented(type))
+            return;
+
+        Set<AnnotatedMethod<? super X>> observers = new HashSet<>();
+        for (AnnotatedMethod<? super X> method : pat.getAnnotatedType().getMethods())
+            if (!method.isStatic() && isObserver(method))
+                observers.add(new AnnotatedMethodDecorator<>(method, OBSERVER_BINDING));
+
+        if (!observers.isEmpty())
+            pat.setAnnotatedType(new AnnotatedTypeDecorator<>(pat.getAnnotatedType(), Collections.<Annotation>emptySet(), observers));
+    }
+
+    private <X> void producerMethods(@Observes @WithAnnotations(Produces.class) ProcessAnnotatedType<X> pat) {
+        // Skip Metrics CDI own producers
+        if (MetricsExtension.class.getPackage().equals(pat.getAnnotatedType().getJavaClass().getPackage()))
+            return;
+
+        // The metrics produced per injection point get registered when the injection point is resolved
+        Set<AnnotatedMethod<? super X>> producers = new HashSet<>();
+        for (AnnotatedMethod<? super X> method : pat.getAnnotatedType().getMethods())
+            if (!method.isStatic() && method.isAnnotationPresent(Produces.class) && isPerInjectionPointMetric(method))
+                producers.add(new AnnotatedMethodDecorator<>(method, PRODUCER_BINDING));
+
+        if (!producers.isEmpty()) {
+            collectRegistryNames(pat.getAnnotatedType());
+            pat.setAnnotatedType(new AnnotatedTypeDecorator<>(pat.getAnnotatedType(), Collections.<Annotation>emptySet(), producers));
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void eventDecorator(@Observes ProcessAnnotatedType<EventDecorator> pat) {
+        // The decorator is enabled globally so that it has to be vetoed when events are not timed
+        if (!timedEvents)
+            pat.veto();
+    }
+
+    private void requestBuffering(@Observes ProcessAnnotatedType<RequestBuffering> pat) {
+        // The container fires the request context lifecycle events for every request as long as they are observed
+        if (!requestBuffer)
+            pat.veto();
     }
 
     private void metricProducerField(@Observes ProcessProducerField<? extends Metric, ?> ppf) {
+        long start = startup.start();
         metrics.put(ppf.getBean(), ppf.getAnnotatedProducerField());
+        startup.record(StartupMetrics.Phase.producers, start, 1);
     }
 
     private void metricProducerMethod(@Observes ProcessProducerMethod<? extends Metric, ?> ppm) {
+        long start = startup.start();
         // Skip the Metrics CDI alternatives
-        if (!ppm.getBean().getBeanClass().equals(MetricProducer.class))
+        if (!ppm.getBean().getBeanClass().equals(MetricProducer.class)) {
             metrics.put(ppm.getBean(), ppm.getAnnotatedProducerMethod());
+            startup.record(StartupMetrics.Phase.producers, start, 1);
+        }
+    }
+
+    private void executorServiceProducer(@Observes ProcessProducer<?, ? extends ExecutorService> pp, BeanManager manager) {
+        AnnotatedMember<?> member = pp.getAnnotatedMember();
+        // Only executor services declared with an interface type can be wrapped
+        if (member.getBaseType() instanceof Class && ((Class<?>) member.getBaseType()).isInterface()
+            && filter.isInstrumented(member.getDeclaringType().getJavaClass()))
+            instrumentExecutorService(pp, manager);
     }
 
     private void defaultMetricRegistry(@Observes AfterBeanDiscovery abd, BeanManager manager) {
@@ -96,27 +261,123 @@ public class MetricsExtension implements Extension {
             abd.addBean(new MetricRegistryBean(manager));
     }
 
+    private void defaultClock(@Observes AfterBeanDiscovery abd, BeanManager manager) {
+        if (manager.getBeans(Clock.class).isEmpty())
+            abd.addBean(new ClockBean(configuration));
+    }
+
     private void configuration(@Observes AfterDeploymentValidation adv, BeanManager manager) {
+        long start = startup.start();
         // Fire configuration event
         manager.fireEvent(configuration);
         configuration.unmodifiable();
+        if (configuration.getParameters().contains(MetricsParameter.useRequestBuffer) && !requestBuffer)
+            adv.addDeploymentProblem(new IllegalStateException("The useRequestBuffer option requires the [" + MetricsProperties.REQUEST_BUFFER + "] deployment property to be set to true"));
+        slowInvocations.setThreshold(configuration.getSlowInvocationThreshold(), TimeUnit.NANOSECONDS);
+        slowInvocations.captureArguments(configuration.getParameters().contains(MetricsParameter.useSlowInvocationArguments));
 
         // Produce and register custom metrics
         MetricRegistry registry = getReference(manager, MetricRegistry.class);
+        registry.addListener(RollingWindowReservoir.cumulativeHistograms(registry));
+        // Started before the producers get invoked so that the timers of the beans they instantiate get tracked
+        if (configuration.getHotspotsPeriod() > 0)
+            hotspots.start(registry, configuration.getHotspotsPeriod(), TimeUnit.NANOSECONDS);
         MetricName name = getReference(manager, MetricName.class);
+        List<Map.Entry<Bean<?>, AnnotatedMember<?>>> producers = new ArrayList<>(metrics.size());
         for (Map.Entry<Bean<?>, AnnotatedMember<?>> bean : metrics.entrySet()) {
-            // TODO: add MetricSet metrics into the metric registry
-            if (bean.getKey().getTypes().contains(MetricSet.class)
+            // skip metric registry producers
+            if (bean.getKey().getTypes().contains(MetricRegistry.class)
                 // skip non @Default beans
                 || !bean.getKey().getQualifiers().contains(DEFAULT)
-                // skip producer methods with injection point
+                // skip producer methods with injection point as their metrics get registered per injection point
                 || hasInjectionPoints(bean.getValue()))
                 continue;
-            registry.register(name.of(bean.getValue()), (Metric) getReference(manager, bean.getValue().getBaseType(), bean.getKey()));
+            producers.add(bean);
         }
 
+        // Resolve all the names, then all the references, possibly concurrently, before registering the metrics in bulk
+        String[] names = new String[producers.size()];
+        for (int i = 0; i < names.length; i++)
+            names[i] = name.of(producers.get(i).getValue());
+        Metric[] references = getReferences(manager, producers, configuration.getParameters().contains(MetricsParameter.useParallelRegistration));
+        for (int i = 0; i < names.length; i++)
+            // The metrics of metric sets get registered with the producer metric name as prefix
+            // and their gauges only get evaluated when their value is requested
+            registry.register(names[i], references[i]);
+
         // Let's clear the collected metric producers
         metrics.clear();
+
+        // Expose the metrics control, the slow invocations and the hotspots via JMX
+        registerMBean(control, MetricsControlMXBean.class, "MetricsControl");
+        registerMBean(slowInvocations, SlowInvocationsMXBean.class, "SlowInvocations");
+        registerMBean(hotspots, HotspotsMXBean.class, "Hotspots");
+
+        startup.record(StartupMetrics.Phase.registration, start, producers.size());
+        if (configuration.getParameters().contains(MetricsParameter.useStartupMetrics))
+            startup.register(registry);
+        LOGGER.info(startup.summary());
+    }
+
+    private void validateRegistryNames(@Observes AfterDeploymentValidation adv, BeanManager manager) {
+        for (String name : registryNames)
+            if (manager.getBeans(MetricRegistry.class, new RegistryNameLiteral(name)).isEmpty())
+                adv.addDeploymentProblem(new IllegalStateException("No metric registry with name [" + name + "] found for the metrics declared with @InRegistry"));
+    }
+
+    private void validateMetricTags(@Observes AfterDeploymentValidation adv) {
+        for (Member member : taggedMembers)
+            if (MetricTags.combinations(member) > MetricTags.MAX_METRICS)
+                adv.addDeploymentProblem(new IllegalStateException("The @MetricTag parameters of [" + member + "] exceed the maximum of [" + MetricTags.MAX_METRICS + "] value combinations"));
+        taggedMembers.clear();
+    }
+
+    private void stopHotspots(@Observes BeforeShutdown shutdown) {
+        hotspots.stop();
+    }
+
+    private void unregisterMBeans(@Observes BeforeShutdown shutdown) throws JMException {
+        for (ObjectName name : mbeans)
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        mbeans.clear();
+    }
+
+    private void collectRegistryNames(AnnotatedType<?> type) {
+        if (type.isAnnotationPresent(InRegistry.class))
+            registryNames.add(type.getAnnotation(InRegistry.class).value());
+        for (AnnotatedMethod<?> method : type.getMethods())
+            if (method.isAnnotationPresent(InRegistry.class))
+                registryNames.add(method.getAnnotation(InRegistry.class).value());
+        for (AnnotatedConstructor<?> constructor : type.getConstructors())
+            if (constructor.isAnnotationPresent(InRegistry.class))
+                registryNames.add(constructor.getAnnotation(InRegistry.class).value());
+    }
+
+    private void collectTaggedMembers(AnnotatedType<?> type) {
+        for (AnnotatedMethod<?> method : type.getMethods())
+            if (MetricTags.isTagged(method.getJavaMember()))
+                taggedMembers.add(method.getJavaMember());
+        for (AnnotatedConstructor<?> constructor : type.getConstructors())
+            if (MetricTags.isTagged(constructor.getJavaMember()))
+                taggedMembers.add(constructor.getJavaMember());
+    }
+
+    private <T> void registerMBean(T object, Class<T> type, String typeName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            StandardMBean mbean = new StandardMBean(object, type, true);
+            ObjectName name = new ObjectName("io.astefanutti.metrics.cdi", "type", typeName);
+            try {
+                server.registerMBean(mbean, name);
+            } catch (InstanceAlreadyExistsException cause) {
+                // Another application using Metrics CDI is deployed in the same JVM
+                name = new ObjectName(name + ",id=" + Integer.toHexString(System.identityHashCode(this)));
+                server.registerMBean(mbean, name);
+            }
+            mbeans.add(name);
+        } catch (JMException cause) {
+            throw new IllegalStateException("Error while registering the [" + typeName + "] MBean", cause);
+        }
     }
 
     private static <T extends Annotation> void declareAsInterceptorBinding(Class<T> annotation, BeanManager manager, BeforeBeanDiscovery bbd) {
@@ -128,6 +389,63 @@ public class MetricsExtension implements Extension {
         bbd.addInterceptorBinding(new AnnotatedTypeDecorator<>(annotated, INTERCEPTOR_BINDING, methods));
     }
 
+    private static <X extends ExecutorService> void instrumentExecutorService(ProcessProducer<?, X> pp, BeanManager manager) {
+        pp.setProducer(new InstrumentedExecutorProducer<>(pp.getProducer(), pp.getAnnotatedMember(), manager));
+    }
+
+    private static Metric[] getReferences(final BeanManager manager, final List<Map.Entry<Bean<?>, AnnotatedMember<?>>> producers, boolean parallel) {
+        final Metric[] references = new Metric[producers.size()];
+        int threads = parallel ? Math.min(Runtime.getRuntime().availableProcessors(), references.length) : 1;
+        if (threads < 2) {
+            for (int i = 0; i < references.length; i++)
+                references[i] = getReference(manager, producers.get(i).getValue().getBaseType(), producers.get(i).getKey());
+            return references;
+        }
+
+        // Each thread gets references for a contiguous batch of the producers
+        final boolean[] failed = new boolean[references.length];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> batches = new ArrayList<>(threads);
+            int size = (references.length + threads - 1) / threads;
+            for (int batch = 0; batch < references.length; batch += size) {
+                final int from = batch;
+                final int to = Math.min(batch + size, references.length);
+                batches.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = from; i < to; i++) {
+                            try {
+                                references[i] = getReference(manager, producers.get(i).getValue().getBaseType(), producers.get(i).getKey());
+                            } catch (RuntimeException cause) {
+                                failed[i] = true;
+                            }
+                        }
+                    }
+                }));
+            }
+            // Waiting for the batches publishes the references to the calling thread
+            for (Future<?> batch : batches)
+                batch.get();
+        } catch (ExecutionException cause) {
+            if (cause.getCause() instanceof RuntimeException)
+                throw (RuntimeException) cause.getCause();
+            throw new IllegalStateException("Error while producing metrics", cause.getCause());
+        } catch (InterruptedException cause) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while producing metrics", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The pool threads have none of the naming, security or other contexts the container associates with
+        // the deployment thread, so the producers that failed there are given another chance from this thread
+        for (int i = 0; i < references.length; i++)
+            if (failed[i])
+                references[i] = getReference(manager, producers.get(i).getValue().getBaseType(), producers.get(i).getKey());
+        return references;
+    }
+
     private static <T> T getReference(BeanManager manager, Class<T> type) {
         return getReference(manager, type, manager.resolve(manager.getBeans(type)));
     }
@@ -137,6 +455,20 @@ public class MetricsExtension implements Extension {
         return (T) manager.getReference(bean, type, manager.createCreationalContext(bean));
     }
 
+    private static boolean isObserver(AnnotatedMethod<?> method) {
+        for (AnnotatedParameter<?> parameter : method.getParameters())
+            if (parameter.isAnnotationPresent(Observes.class))
+                return true;
+
+        return false;
+    }
+
+    private static boolean isPerInjectionPointMetric(AnnotatedMethod<?> method) {
+        Class<?> type = method.getJavaMember().getReturnType();
+        // The members of metric sets are registered with a prefix so that the metric sets cannot be retrieved by name
+        return Metric.class.isAssignableFrom(type) && !MetricSet.class.isAssignableFrom(type) && hasInjectionPoints(method);
+    }
+
     private static boolean hasInjectionPoints(AnnotatedMember<?> member) {
         if (!(member instanceof AnnotatedMethod))
             return false;
@@ -15,7 +15,9 @@
  */
 package io.astefanutti.metrics.cdi;
 
+import com.codahale.metrics.Clock;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.codahale.metrics.annotation.CachedGauge;
 import com.codahale.metrics.annotation.Counted;
 import com.codahale.metrics.annotation.ExceptionMetered;
@@ -41,14 +43,17 @@ import java.util.concurrent.TimeUnit;
 // See http://docs.oracle.com/javaee/7/tutorial/doc/interceptors.htm
 /* package-private */ class MetricsInterceptor {
 
-    private final MetricRegistry registry;
-
     private final MetricResolver resolver;
 
+    private final Clock clock;
+
+    private final HotspotTracker hotspots;
+
     @Inject
-    private MetricsInterceptor(MetricRegistry registry, MetricResolver resolver) {
-        this.registry = registry;
+    private MetricsInterceptor(MetricResolver resolver, Clock clock, MetricsExtension extension) {
         this.resolver = resolver;
+        this.clock = clock;
+        this.hotspots = extension.getHotspots();
     }
 
     @AroundConstruct
@@ -59,60 +64,88 @@ import java.util.concurrent.TimeUnit;
         registerMetrics(bean, context.getConstructor());
 
         // Registers the methods metrics over the bean type hierarchy
-        Class<?> type = bean;
-        do {
-            // TODO: discover annotations declared on implemented interfaces
-            for (Method method : type.getDeclaredMethods())
-                if (!method.isSynthetic() && !Modifier.isPrivate(method.getModifiers()))
-                    registerMetrics(bean, method);
-            type = type.getSuperclass();
-        } while (!Object.class.equals(type));
+        for (Method method : resolver.methodsOf(bean))
+            if (!method.isSynthetic() && !Modifier.isPrivate(method.getModifiers()))
+                registerMetrics(bean, method);
 
         Object target = context.proceed();
 
         // Registers the gauges over the bean type hierarchy after the target is constructed as it is required for the gauge invocations
-        type = bean;
-        do {
-            // TODO: discover annotations declared on implemented interfaces
-            for (Method method : type.getDeclaredMethods()) {
-                MetricResolver.Of<CachedGauge> cachedGauge = resolver.cachedGauge(bean, method);
-                if (cachedGauge.isPresent())
-                    registry.register(cachedGauge.metricName(), new CachingGauge(new ForwardingGauge(method, context.getTarget()), cachedGauge.metricAnnotation().timeout(), cachedGauge.metricAnnotation().timeoutUnit()));
-    
-                MetricResolver.Of<Gauge> gauge = resolver.gauge(bean, method);
-                if (gauge.isPresent())
-                    registry.register(gauge.metricName(), new ForwardingGauge(method, context.getTarget()));
-            }
-            type = type.getSuperclass();
-        } while (!Object.class.equals(type));
+        for (Method method : resolver.methodsOf(bean)) {
+            MetricRegistry registry = resolver.registry(bean, method);
+            MetricResolver.Of<CachedGauge> cachedGauge = resolver.cachedGauge(bean, method);
+            if (cachedGauge.isPresent())
+                registry.register(cachedGauge.metricName(), cachingGauge(forwardingGauge(method, context.getTarget()), cachedGauge.metricAnnotation()));
+
+            MetricResolver.Of<Gauge> gauge = resolver.gauge(bean, method);
+            if (gauge.isPresent())
+                registry.register(gauge.metricName(), forwardingGauge(method, context.getTarget()));
+        }
 
         return target;
     }
 
     private <E extends Member & AnnotatedElement> void registerMetrics(Class<?> bean, E element) {
-        MetricResolver.Of<Counted> counted = resolver.counted(bean, element);
+        MetricResolver.Plan plan = resolver.plan(bean, element);
+        MetricRegistry registry = plan.registry();
+
+        MetricResolver.Of<Counted> counted = plan.counted();
         if (counted.isPresent())
             registry.counter(counted.metricName());
 
-        MetricResolver.Of<ExceptionMetered> exceptionMetered = resolver.exceptionMetered(bean, element);
+        MetricResolver.Of<ExceptionMetered> exceptionMetered = plan.exceptionMetered();
         if (exceptionMetered.isPresent())
-            registry.meter(exceptionMetered.metricName());
+            registry.meter(exceptionMetered.metricName(), MetricSuppliers.meter(clock));
 
-        MetricResolver.Of<Metered> metered = resolver.metered(bean, element);
+        MetricResolver.Of<Metered> metered = plan.metered();
         if (metered.isPresent())
-            registry.meter(metered.metricName());
+            registry.meter(metered.metricName(), MetricSuppliers.meter(clock));
+
+        MetricResolver.Of<Timed> timed = plan.timed();
+        if (timed.isPresent()) {
+            String name = timed.metricName();
+            Timer timer = registry.timer(name, MetricSuppliers.timer(clock, plan.isRecorded(), plan.rollingWindow()));
+            hotspots.track(registry, name, timer);
+
+            if (plan.expectedInterval() > 0)
+                registry.histogram(plan.correctedName(name), MetricSuppliers.histogram(clock, plan.isRecorded(), plan.rollingWindow()));
+
+            if (plan.threadUsage() != null) {
+                registry.histogram(plan.cpuName(name));
+                registry.histogram(plan.allocatedName(name));
+            }
+        }
+    }
+
+    private com.codahale.metrics.Gauge<?> forwardingGauge(Method method, Object object) {
+        // Generated accessors only support non-private instance methods
+        GaugeAccessor accessor = Modifier.isPrivate(method.getModifiers()) || Modifier.isStatic(method.getModifiers()) ? null : resolver.accessorOf(method.getDeclaringClass());
+        // Gauge methods returning a long or a double are read without boxing
+        if (method.getReturnType() == long.class)
+            return accessor != null ? PrimitiveGauges.longGauge(accessor, method.getName(), object) : PrimitiveGauges.longGauge(method, object);
+        else if (method.getReturnType() == double.class)
+            return accessor != null ? PrimitiveGauges.doubleGauge(accessor, method.getName(), object) : PrimitiveGauges.doubleGauge(method, object);
+        else if (accessor != null)
+            return new AccessorGauge(accessor, method.getName(), object);
+        else
+            return new ForwardingGauge(method, object);
+    }
 
-        MetricResolver.Of<Timed> timed = resolver.timed(bean, element);
-        if (timed.isPresent())
-            registry.timer(timed.metricName());
+    private com.codahale.metrics.Gauge<?> cachingGauge(com.codahale.metrics.Gauge<?> gauge, CachedGauge cached) {
+        if (gauge instanceof LongGauge)
+            return PrimitiveGauges.caching((LongGauge) gauge, clock, cached.timeout(), cached.timeoutUnit());
+        else if (gauge instanceof DoubleGauge)
+            return PrimitiveGauges.caching((DoubleGauge) gauge, clock, cached.timeout(), cached.timeoutUnit());
+        else
+            return new CachingGauge(gauge, clock, cached.timeout(), cached.timeoutUnit());
     }
 
     private static final class CachingGauge extends com.codahale.metrics.CachedGauge<Object> {
 
         private final com.codahale.metrics.Gauge<?> gauge;
         
-        private CachingGauge(com.codahale.metrics.Gauge<?> gauge, long timeout, TimeUnit timeoutUnit) {
-            super(timeout, timeoutUnit);
+        private CachingGauge(com.codahale.metrics.Gauge<?> gauge, Clock clock, long timeout, TimeUnit timeoutUnit) {
+            super(clock, timeout, timeoutUnit);
             this.gauge = gauge;
         }
 
@@ -122,6 +155,26 @@ import java.util.concurrent.TimeUnit;
         }
     }
 
+    private static final class AccessorGauge implements com.codahale.metrics.Gauge<Object> {
+
+        private final GaugeAccessor accessor;
+
+        private final String method;
+
+        private final Object object;
+
+        private AccessorGauge(GaugeAccessor accessor, String method, Object object) {
+            this.accessor = accessor;
+            this.method = method;
+            this.object = object;
+        }
+
+        @Override
+        public Object getValue() {
+            return accessor.get(object, method);
+        }
+    }
+
     private static final class ForwardingGauge implements com.codahale.metrics.Gauge<Object> {
 
         private final Method method;
@@ -18,5 +18,13 @@ package io.astefanutti.metrics.cdi;
 
 /* package-private */ enum MetricsParameter {
 
-    useAbsoluteName
+    useAbsoluteName,
+
+    useRequestBuffer,
+
+    useParallelRegistration,
+
+    useSlowInvocationArguments,
+
+    useStartupMetrics
 }
@@ -0,0 +1,72 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import javax.enterprise.inject.Vetoed;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.Properties;
+
+/**
+ * Loads the Metrics CDI deployment properties, that are read before the bean discovery
+ * and as such cannot be provided by the {@link MetricsConfiguration} event.
+ *
+ * The properties are read from all the {@code META-INF/metrics-cdi.properties} resources
+ * and can be overridden with system properties.
+ */
+@Vetoed
+/* package-private */ final class MetricsProperties {
+
+    static final String RESOURCE = "META-INF/metrics-cdi.properties";
+
+    static final String PREFIX = "metrics.cdi.";
+
+    static final String EVENTS = PREFIX + "events";
+
+    static final String REQUEST_BUFFER = PREFIX + "request.buffer";
+
+    private MetricsProperties() {
+    }
+
+    static Properties load() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null)
+            loader = MetricsProperties.class.getClassLoader();
+
+        Properties properties = new Properties();
+        try {
+            Enumeration<URL> resources = loader.getResources(RESOURCE);
+            while (resources.hasMoreElements())
+                load(properties, resources.nextElement());
+        } catch (IOException cause) {
+            throw new IllegalStateException("Error while reading Metrics CDI properties [" + RESOURCE + "]", cause);
+        }
+
+        for (String name : System.getProperties().stringPropertyNames())
+            if (name.startsWith(PREFIX))
+                properties.setProperty(name, System.getProperty(name));
+
+        return properties;
+    }
+
+    private static void load(Properties properties, URL resource) throws IOException {
+        try (InputStream stream = resource.openStream()) {
+            properties.load(stream);
+        }
+    }
+}
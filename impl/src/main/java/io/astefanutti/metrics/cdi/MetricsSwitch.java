@@ -0,0 +1,176 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.annotation.Counted;
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Metered;
+import com.codahale.metrics.annotation.Timed;
+
+import javax.enterprise.inject.Vetoed;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+@Vetoed
+/* package-private */ final class MetricsSwitch implements MetricsControl, MetricsControlMXBean {
+
+    private static final Set<String> ANNOTATIONS = new HashSet<>(Arrays.asList(Counted.class.getName(), ExceptionMetered.class.getName(), Metered.class.getName(), Timed.class.getName()));
+
+    private static final int ENABLED = 0;
+
+    private static final int DISABLED = 1;
+
+    private static final int SELECTIVE = 2;
+
+    // Summarizes the settings so that interceptors only read that field while no metrics are selectively disabled
+    private volatile int state = ENABLED;
+
+    private volatile boolean enabled = true;
+
+    private final Set<String> annotations = new CopyOnWriteArraySet<>();
+
+    private final Set<String> beans = new CopyOnWriteArraySet<>();
+
+    private final Set<String> methods = new CopyOnWriteArraySet<>();
+
+    private final ConcurrentMap<Member, String> keys = new ConcurrentHashMap<>();
+
+    boolean isEnabled(Class<?> bean, Member member, Class<? extends Annotation> annotation) {
+        int state = this.state;
+        if (state == ENABLED)
+            return true;
+        else if (state == DISABLED)
+            return false;
+        else
+            return !annotations.contains(annotation.getName()) && !beans.contains(bean.getName()) && !methods.contains(key(member));
+    }
+
+    boolean isEnabled(Class<?> type, Class<? extends Annotation> annotation) {
+        int state = this.state;
+        if (state == ENABLED)
+            return true;
+        else if (state == DISABLED)
+            return false;
+        else
+            return !annotations.contains(annotation.getName()) && !beans.contains(type.getName());
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        updateState();
+    }
+
+    @Override
+    public boolean isAnnotationEnabled(Class<? extends Annotation> annotation) {
+        return !annotations.contains(annotation.getName());
+    }
+
+    @Override
+    public void setAnnotationEnabled(Class<? extends Annotation> annotation, boolean enabled) {
+        update(annotations, annotation.getName(), enabled);
+    }
+
+    @Override
+    public boolean isBeanEnabled(Class<?> bean) {
+        return !beans.contains(bean.getName());
+    }
+
+    @Override
+    public void setBeanEnabled(Class<?> bean, boolean enabled) {
+        update(beans, bean.getName(), enabled);
+    }
+
+    @Override
+    public boolean isMethodEnabled(Method method) {
+        return !methods.contains(key(method));
+    }
+
+    @Override
+    public void setMethodEnabled(Method method, boolean enabled) {
+        update(methods, key(method), enabled);
+    }
+
+    @Override
+    public String[] getDisabled() {
+        Set<String> disabled = new TreeSet<>(annotations);
+        disabled.addAll(beans);
+        disabled.addAll(methods);
+        return disabled.toArray(new String[disabled.size()]);
+    }
+
+    @Override
+    public void enable(String target) {
+        update(target, true);
+    }
+
+    @Override
+    public void disable(String target) {
+        update(target, false);
+    }
+
+    private void update(String target, boolean enabled) {
+        String name = target.trim();
+        if (name.contains("#"))
+            update(methods, name, enabled);
+        else if (ANNOTATIONS.contains(name))
+            update(annotations, name, enabled);
+        else if (ANNOTATIONS.contains(Timed.class.getPackage().getName() + "." + name))
+            update(annotations, Timed.class.getPackage().getName() + "." + name, enabled);
+        else
+            update(beans, name, enabled);
+    }
+
+    private synchronized void update(Set<String> targets, String target, boolean enabled) {
+        if (enabled)
+            targets.remove(target);
+        else
+            targets.add(target);
+        updateState();
+    }
+
+    private void updateState() {
+        if (!enabled)
+            state = DISABLED;
+        else if (annotations.isEmpty() && beans.isEmpty() && methods.isEmpty())
+            state = ENABLED;
+        else
+            state = SELECTIVE;
+    }
+
+    private String key(Member member) {
+        String key = keys.get(member);
+        if (key == null) {
+            key = member.getDeclaringClass().getName() + "#" + (member instanceof Constructor ? "<init>" : member.getName());
+            keys.put(member, key);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.annotation.Timed;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import java.lang.reflect.Method;
+
+@Interceptor
+@ObserverBinding
+@Priority(Interceptor.Priority.LIBRARY_BEFORE + 10)
+/* package-private */ class ObserverInterceptor {
+
+    private final EventMetrics metrics;
+
+    private final MetricsSwitch control;
+
+    @Inject
+    private ObserverInterceptor(EventMetrics metrics, MetricsExtension extension) {
+        this.metrics = metrics;
+        this.control = extension.getControl();
+    }
+
+    @AroundInvoke
+    private Object timedObserver(InvocationContext context) throws Exception {
+        Method method = context.getMethod();
+        // The observer timers are switched along with the timed methods
+        if (!control.isEnabled(method.getDeclaringClass(), method, Timed.class))
+            return context.proceed();
+
+        Timer.Context time = metrics.observer(method).time();
+        try {
+            return context.proceed();
+        } finally {
+            time.stop();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Clock;
+
+import javax.enterprise.inject.Vetoed;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Vetoed
+/* package-private */ final class PrimitiveGauges {
+
+    private PrimitiveGauges() {
+    }
+
+    static LongGauge longGauge(final GaugeAccessor accessor, final String method, final Object object) {
+        return new LongGauge() {
+            @Override
+            public long getAsLong() {
+                return accessor.getAsLong(object, method);
+            }
+
+            @Override
+            public Long getValue() {
+                return getAsLong();
+            }
+        };
+    }
+
+    static DoubleGauge doubleGauge(final GaugeAccessor accessor, final String method, final Object object) {
+        return new DoubleGauge() {
+            @Override
+            public double getAsDouble() {
+                return accessor.getAsDouble(object, method);
+            }
+
+            @Override
+            public Double getValue() {
+                return getAsDouble();
+            }
+        };
+    }
+
+    static LongGauge longGauge(final Method method, Object object) {
+        final MethodHandle handle = handleOf(method, object, long.class);
+        return new LongGauge() {
+            @Override
+            public long getAsLong() {
+                try {
+                    // The exact invocation of a handle typed ()long does not box the returned value
+                    return (long) handle.invokeExact();
+                } catch (Error cause) {
+                    throw cause;
+                } catch (Throwable cause) {
+                    throw new IllegalStateException("Error while calling method [" + method + "]", cause);
+                }
+            }
+
+            @Override
+            public Long getValue() {
+                return getAsLong();
+            }
+        };
+    }
+
+    static DoubleGauge doubleGauge(final Method method, Object object) {
+        final MethodHandle handle = handleOf(method, object, double.class);
+        return new DoubleGauge() {
+            @Override
+            public double getAsDouble() {
+                try {
+                    return (double) handle.invokeExact();
+                } catch (Error cause) {
+                    throw cause;
+                } catch (Throwable cause) {
+                    throw new IllegalStateException("Error while calling method [" + method + "]", cause);
+                }
+            }
+
+            @Override
+            public Double getValue() {
+                return getAsDouble();
+            }
+        };
+    }
+
+    static LongGauge caching(LongGauge gauge, Clock clock, long timeout, TimeUnit unit) {
+        return new CachingLongGauge(gauge, clock, timeout, unit);
+    }
+
+    static DoubleGauge caching(DoubleGauge gauge, Clock clock, long timeout, TimeUnit unit) {
+        return new CachingDoubleGauge(gauge, clock, timeout, unit);
+    }
+
+    private static MethodHandle handleOf(Method method, Object object, Class<?> type) {
+        method.setAccessible(true);
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers()))
+                handle = handle.bindTo(object);
+            return handle.asType(MethodType.methodType(type));
+        } catch (IllegalAccessException cause) {
+            throw new IllegalStateException("Error while accessing method [" + method + "]", cause);
+        }
+    }
+
+    // Mirrors the reload policy of the Metrics cached gauge that stores the value as an object
+    private static abstract class CachingGauge {
+
+        private final Clock clock;
+
+        private final AtomicLong reloadAt = new AtomicLong();
+
+        private final long timeout;
+
+        CachingGauge(Clock clock, long timeout, TimeUnit unit) {
+            this.clock = clock;
+            this.timeout = unit.toNanos(timeout);
+        }
+
+        boolean shouldLoad() {
+            for (;;) {
+                long time = clock.getTick();
+                long current = reloadAt.get();
+                if (current > time)
+                    return false;
+                if (reloadAt.compareAndSet(current, time + timeout))
+                    return true;
+            }
+        }
+    }
+
+    private static final class CachingLongGauge extends CachingGauge implements LongGauge {
+
+        private final LongGauge gauge;
+
+        private volatile long value;
+
+        private CachingLongGauge(LongGauge gauge, Clock clock, long timeout, TimeUnit unit) {
+            super(clock, timeout, unit);
+            this.gauge = gauge;
+        }
+
+        @Override
+        public long getAsLong() {
+            if (shouldLoad())
+                value = gauge.getAsLong();
+            return value;
+        }
+
+        @Override
+        public Long getValue() {
+            return getAsLong();
+        }
+    }
+
+    private static final class CachingDoubleGauge extends CachingGauge implements DoubleGauge {
+
+        private final DoubleGauge gauge;
+
+        private volatile double value;
+
+        private CachingDoubleGauge(DoubleGauge gauge, Clock clock, long timeout, TimeUnit unit) {
+            super(clock, timeout, unit);
+            this.gauge = gauge;
+        }
+
+        @Override
+        public double getAsDouble() {
+            if (shouldLoad())
+                value = gauge.getAsDouble();
+            return value;
+        }
+
+        @Override
+        public Double getValue() {
+            return getAsDouble();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+
+import javax.annotation.Priority;
+import javax.enterprise.inject.Intercepted;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+@Interceptor
+@ProducerBinding
+@Priority(Interceptor.Priority.LIBRARY_BEFORE + 10)
+/* package-private */ class ProducerInterceptor {
+
+    private final Bean<?> bean;
+
+    private final MetricResolver resolver;
+
+    private final MetricName metricName;
+
+    private final Map<Metric, Method> produced;
+
+    @Inject
+    private ProducerInterceptor(@Intercepted Bean<?> bean, MetricResolver resolver, MetricName metricName, MetricsExtension extension) {
+        this.bean = bean;
+        this.resolver = resolver;
+        this.metricName = metricName;
+        this.produced = extension.getProducedMetrics();
+    }
+
+    @AroundInvoke
+    private Object producedMetric(InvocationContext context) throws Exception {
+        InjectionPoint ip = injectionPointOf(context.getParameters());
+        if (ip == null)
+            return context.proceed();
+
+        // The registry is resolved from the producer method or its declaring bean class, as for the metrics annotations
+        Method method = context.getMethod();
+        MetricRegistry registry = resolver.registry(bean.getBeanClass(), method);
+        // The registry caches the metrics produced per injection point name so that the producer is only invoked once per name
+        String name = metricName.of(ip);
+        Metric metric = registry.getMetrics().get(name);
+        if (metric == null) {
+            metric = (Metric) context.proceed();
+            if (metric == null)
+                return null;
+            // Recorded before the registration so that a concurrent resolution finds it along with the registered metric
+            produced.put(metric, method);
+            // The producer may register the metric itself, under that name or another one, in any registry
+            if (resolver.isRegistered(metric))
+                return metric;
+            try {
+                registry.register(name, metric);
+                return metric;
+            } catch (IllegalArgumentException cause) {
+                // Produced concurrently for another injection point with the same name
+                produced.remove(metric);
+                metric = registry.getMetrics().get(name);
+            }
+        }
+
+        // The producer must not return a metric registered by another producer or by the application under the same name
+        if (!method.equals(produced.get(metric)))
+            throw new IllegalStateException("Metric with name [" + name + "] found in registry [" + registry + "] has not been produced by [" + method + "]");
+
+        return metric;
+    }
+
+    private static InjectionPoint injectionPointOf(Object[] parameters) {
+        for (Object parameter : parameters)
+            if (parameter instanceof InjectionPoint)
+                return (InjectionPoint) parameter;
+
+        return null;
+    }
+}
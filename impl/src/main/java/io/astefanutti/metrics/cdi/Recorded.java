@@ -0,0 +1,52 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation requesting the timers, respectively the histograms, registered for the annotated element to record
+ * their values into thread-striped, double-buffered histograms that get merged when a snapshot is taken, instead of
+ * the default exponentially decaying reservoir. That trades the bias toward the last five minutes of the default
+ * reservoir for contention-free updates under high concurrency.
+ *
+ * It can be declared along with the {@link com.codahale.metrics.annotation.Timed} annotation on a bean class,
+ * constructor or method, e.g.:
+ * <pre>{@code
+ * @Timed
+ * @Recorded
+ * public void timedMethod() {
+ * }
+ * }</pre>
+ *
+ * or on injected {@link com.codahale.metrics.Timer} and {@link com.codahale.metrics.Histogram} fields and parameters.
+ *
+ * Snapshots of such timers and histograms contain all the values recorded since their creation with a relative
+ * precision better than 3%.
+ *
+ * That comes at the cost of a larger memory footprint: each histogram has 1280 buckets, i.e. 10 KB, and each of the
+ * stripes, allocated lazily up to the number of processors rounded to a power of two and at most 32, is double-buffered,
+ * so that a timer or histogram takes up to 650 KB when updated from many threads on a large machine.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD, ElementType.FIELD, ElementType.PARAMETER })
+public @interface Recorded {
+}
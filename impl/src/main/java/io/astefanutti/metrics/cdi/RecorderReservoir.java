@@ -0,0 +1,61 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+import javax.enterprise.inject.Vetoed;
+
+/**
+ * A {@link Reservoir} that records values into a {@link HistogramRecorder} and merges the recorded intervals into
+ * a histogram of all the values recorded since its creation when a snapshot is taken.
+ *
+ * Each reservoir retains the 1280 buckets of its cumulative histogram plus two histograms per stripe of the recorder,
+ * with up to 32 stripes, i.e. from 10 KB to 650 KB.
+ */
+@Vetoed
+/* package-private */ final class RecorderReservoir implements Reservoir {
+
+    static final MetricRegistry.MetricSupplier<Histogram> HISTOGRAM = new MetricRegistry.MetricSupplier<Histogram>() {
+        @Override
+        public Histogram newMetric() {
+            return new Histogram(new RecorderReservoir());
+        }
+    };
+
+    private final HistogramRecorder recorder = new HistogramRecorder();
+
+    private final LogLinearHistogram histogram = new LogLinearHistogram();
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        recorder.record(value);
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        recorder.harvestInto(histogram);
+        return new HistogramSnapshot(histogram.counts());
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A qualifier identifying a named {@link com.codahale.metrics.MetricRegistry} bean, in addition to the default one,
+ * that the metrics of the bean classes, constructors and methods annotated with {@link InRegistry} get registered into, e.g.:
+ * <pre>{@code
+ * @Produces
+ * @ApplicationScoped
+ * @RegistryName("hot")
+ * private final MetricRegistry hot = new MetricRegistry();
+ * }</pre>
+ *
+ * The named registry can be injected similarly, e.g. to configure its reporters:
+ * <pre>{@code
+ * @Inject
+ * @RegistryName("hot")
+ * private MetricRegistry registry;
+ * }</pre>
+ */
+@Qualifier
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD, ElementType.FIELD, ElementType.PARAMETER })
+public @interface RegistryName {
+
+    /**
+     * @return the name of the registry
+     */
+    String value();
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+import javax.enterprise.inject.Vetoed;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates the metrics updates performed while processing a request, and flushes them into the shared metrics
+ * once the request context is destroyed. Counters and meters are flushed with a single update while timer samples
+ * are replayed so that their distribution remains exact.
+ *
+ * The buffer methods are synchronized, which is cheap as they are mostly uncontended, so that the flushing thread
+ * sees all the updates and that late updates go to the shared metrics directly.
+ *
+ * @see RequestBuffers
+ */
+@Vetoed
+/* package-private */ final class RequestBuffer {
+
+    private final Map<Counter, long[]> counters = new IdentityHashMap<>();
+
+    private final Map<Meter, long[]> meters = new IdentityHashMap<>();
+
+    private final Map<Timer, Samples> timers = new IdentityHashMap<>();
+
+    private boolean flushed;
+
+    synchronized void inc(Counter counter) {
+        if (flushed) {
+            counter.inc();
+            return;
+        }
+        long[] count = counters.get(counter);
+        if (count == null)
+            counters.put(counter, new long[]{1L});
+        else
+            count[0]++;
+    }
+
+    synchronized void mark(Meter meter) {
+        if (flushed) {
+            meter.mark();
+            return;
+        }
+        long[] count = meters.get(meter);
+        if (count == null)
+            meters.put(meter, new long[]{1L});
+        else
+            count[0]++;
+    }
+
+    synchronized void update(Timer timer, long duration) {
+        if (flushed) {
+            timer.update(duration, TimeUnit.NANOSECONDS);
+            return;
+        }
+        Samples samples = timers.get(timer);
+        if (samples == null)
+            timers.put(timer, samples = new Samples());
+        samples.add(duration);
+    }
+
+    synchronized void flush() {
+        flushed = true;
+        for (Map.Entry<Counter, long[]> counter : counters.entrySet())
+            counter.getKey().inc(counter.getValue()[0]);
+        for (Map.Entry<Meter, long[]> meter : meters.entrySet())
+            meter.getKey().mark(meter.getValue()[0]);
+        for (Map.Entry<Timer, Samples> timer : timers.entrySet())
+            timer.getValue().flush(timer.getKey());
+    }
+
+    private static final class Samples {
+
+        private long[] durations = new long[8];
+
+        private int size;
+
+        void add(long duration) {
+            if (size == durations.length)
+                durations = Arrays.copyOf(durations, size * 2);
+            durations[size++] = duration;
+        }
+
+        void flush(Timer timer) {
+            for (int i = 0; i < size; i++)
+                timer.update(durations[i], TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Destroyed;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+/**
+ * Observes the request context lifecycle to begin and flush the request buffers. It is vetoed unless the
+ * {@code metrics.cdi.request.buffer} deployment property is set as the container then skips firing these events.
+ */
+@ApplicationScoped
+/* package-private */ class RequestBuffering {
+
+    @Inject
+    private MetricsExtension extension;
+
+    private void begin(@Observes @Initialized(RequestScoped.class) Object request) {
+        if (extension.getParameters().contains(MetricsParameter.useRequestBuffer))
+            extension.getRequestBuffers().begin(request);
+    }
+
+    private void end(@Observes @Destroyed(RequestScoped.class) Object request) {
+        extension.getRequestBuffers().end(request);
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import javax.enterprise.inject.Vetoed;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Binds the {@link RequestBuffer} of the request being processed to the processing thread. The buffers are owned
+ * by the extension instance, rather than by static fields, so that the deployments sharing the Metrics CDI classes
+ * do not see the buffers of each other.
+ *
+ * Buffers are also tracked by request so that the request context can be destroyed in another thread, e.g. for
+ * asynchronous requests, in which case the processing thread keeps the flushed buffer, that lets the late updates
+ * go to the shared metrics directly, until it begins another request.
+ */
+@Vetoed
+/* package-private */ final class RequestBuffers {
+
+    private final ThreadLocal<RequestBuffer> current = new ThreadLocal<>();
+
+    private final ConcurrentMap<Object, RequestBuffer> requests = new ConcurrentHashMap<>();
+
+    RequestBuffer current() {
+        return current.get();
+    }
+
+    void begin(Object request) {
+        RequestBuffer buffer = new RequestBuffer();
+        current.set(buffer);
+        // Flushes the buffer of a request whose context is initialized again, e.g. for an asynchronous dispatch,
+        // as it would otherwise not be found anymore once that context is destroyed
+        RequestBuffer previous = requests.put(request, buffer);
+        if (previous != null)
+            previous.flush();
+    }
+
+    void end(Object request) {
+        RequestBuffer buffer = requests.remove(request);
+        if (buffer == null)
+            return;
+
+        if (current.get() == buffer)
+            current.remove();
+        buffer.flush();
+    }
+}
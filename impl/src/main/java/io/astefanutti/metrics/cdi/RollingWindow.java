@@ -0,0 +1,65 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An annotation requesting the timers, respectively the histograms, registered for the annotated element to take
+ * their snapshots over a rolling time window, e.g. the last minute, instead of the exponentially decaying reservoir
+ * biased toward the last five minutes. The window is divided into intervals whose values are recorded into
+ * mergeable histograms that are merged when a snapshot is taken, so that windowed percentiles are computed over all
+ * the values recorded during the window with a relative precision better than 3% and a bounded memory footprint.
+ *
+ * It can be declared along with the {@link com.codahale.metrics.annotation.Timed} annotation on a bean class,
+ * constructor or method, e.g.:
+ * <pre>{@code
+ * @Timed
+ * @RollingWindow(window = 60, unit = TimeUnit.SECONDS, intervals = 12)
+ * public void timedMethod() {
+ * }
+ * }</pre>
+ *
+ * or on injected {@link com.codahale.metrics.Timer} and {@link com.codahale.metrics.Histogram} fields and parameters.
+ *
+ * The values recorded since the creation of such timers and histograms are also exported with the
+ * {@code <metric>.cumulative} histogram. This annotation takes precedence over the {@link Recorded} annotation.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD, ElementType.FIELD, ElementType.PARAMETER })
+public @interface RollingWindow {
+
+    /**
+     * @return the duration of the window
+     */
+    long window() default 60L;
+
+    /**
+     * @return the time unit of the window duration
+     */
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * @return the number of intervals the window is divided into, that the window rolls by
+     */
+    int intervals() default 12;
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricRegistryListener;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import javax.enterprise.inject.Vetoed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link Reservoir} that records values into a ring of interval histograms, rotated as time goes by, and merges
+ * the intervals of the window when a snapshot is taken. The values are also recorded into a cumulative histogram
+ * of all the values recorded since its creation.
+ *
+ * Rotation is lock-free: the first writer of a new interval replaces the expired histogram of its slot, so that
+ * writers never block and the memory footprint is bounded by the number of intervals.
+ */
+@Vetoed
+/* package-private */ final class RollingWindowReservoir implements Reservoir {
+
+    static final String CUMULATIVE = "cumulative";
+
+    private final Clock clock;
+
+    private final long interval;
+
+    private final AtomicReferenceArray<Interval> intervals;
+
+    private final LogLinearHistogram cumulative = new LogLinearHistogram();
+
+    // Counted apart as the snapshots bound the number of values they return
+    private final AtomicLong count = new AtomicLong();
+
+    RollingWindowReservoir(Clock clock, long window, TimeUnit unit, int intervals) {
+        if (window <= 0 || intervals <= 0)
+            throw new IllegalArgumentException("Rolling window duration and intervals must be strictly positive: " + window + ", " + intervals);
+        this.clock = clock;
+        this.interval = Math.max(1L, unit.toNanos(window) / intervals);
+        this.intervals = new AtomicReferenceArray<>(intervals);
+    }
+
+    RollingWindowReservoir(Clock clock, RollingWindow window) {
+        this(clock, window.window(), window.unit(), window.intervals());
+    }
+
+    @Override
+    public int size() {
+        long epoch = epoch();
+        long size = 0;
+        for (int i = 0; i < intervals.length(); i++) {
+            Interval interval = intervals.get(i);
+            if (interval != null && interval.epoch > epoch - intervals.length() && interval.epoch <= epoch)
+                size += interval.histogram.count();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        intervalOf(epoch()).histogram.record(value);
+        cumulative.record(value);
+        count.incrementAndGet();
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        long epoch = epoch();
+        LogLinearHistogram window = new LogLinearHistogram();
+        for (int i = 0; i < intervals.length(); i++) {
+            Interval interval = intervals.get(i);
+            if (interval != null && interval.epoch > epoch - intervals.length() && interval.epoch <= epoch)
+                window.add(interval.histogram);
+        }
+        return new HistogramSnapshot(window.counts());
+    }
+
+    Snapshot getCumulativeSnapshot() {
+        return new HistogramSnapshot(cumulative.counts());
+    }
+
+    long getCumulativeCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns a listener that registers the cumulative histograms of the timers and histograms created with a rolling window
+     * reservoir as these get registered into the given registry, and that removes them along with their windowed metric.
+     */
+    static MetricRegistryListener cumulativeHistograms(final MetricRegistry registry) {
+        return new MetricRegistryListener.Base() {
+            @Override
+            public void onHistogramAdded(String name, Histogram histogram) {
+                if (histogram instanceof WindowedHistogram)
+                    register(registry, name, ((WindowedHistogram) histogram).reservoir);
+            }
+
+            @Override
+            public void onHistogramRemoved(String name) {
+                unregister(registry, name);
+            }
+
+            @Override
+            public void onTimerAdded(String name, Timer timer) {
+                if (timer instanceof WindowedTimer)
+                    register(registry, name, ((WindowedTimer) timer).reservoir);
+            }
+
+            @Override
+            public void onTimerRemoved(String name) {
+                unregister(registry, name);
+            }
+        };
+    }
+
+    private static void register(MetricRegistry registry, String name, RollingWindowReservoir reservoir) {
+        String cumulative = MetricRegistry.name(name, CUMULATIVE);
+        // Replaces the cumulative histogram of a windowed metric that would have been replaced without being removed
+        unregister(registry, name);
+        try {
+            registry.register(cumulative, new CumulativeHistogram(reservoir));
+        } catch (IllegalArgumentException cause) {
+            // Registered concurrently or by the application
+        }
+    }
+
+    private static void unregister(MetricRegistry registry, String name) {
+        String cumulative = MetricRegistry.name(name, CUMULATIVE);
+        if (registry.getMetrics().get(cumulative) instanceof CumulativeHistogram)
+            registry.remove(cumulative);
+    }
+
+    static MetricRegistry.MetricSupplier<Timer> timer(final Clock clock, final RollingWindow window) {
+        return new MetricRegistry.MetricSupplier<Timer>() {
+            @Override
+            public Timer newMetric() {
+                return new WindowedTimer(new RollingWindowReservoir(clock, window), clock);
+            }
+        };
+    }
+
+    static MetricRegistry.MetricSupplier<Histogram> histogram(final Clock clock, final RollingWindow window) {
+        return new MetricRegistry.MetricSupplier<Histogram>() {
+            @Override
+            public Histogram newMetric() {
+                return new WindowedHistogram(new RollingWindowReservoir(clock, window));
+            }
+        };
+    }
+
+    private long epoch() {
+        // The clock tick may be negative
+        long tick = clock.getTick();
+        long epoch = tick / interval;
+        return tick < 0 && epoch * interval != tick ? epoch - 1 : epoch;
+    }
+
+    private Interval intervalOf(long epoch) {
+        int index = (int) (epoch % intervals.length());
+        if (index < 0)
+            index += intervals.length();
+
+        for (;;) {
+            Interval interval = intervals.get(index);
+            // Late writers record into the newer interval as the expired one may have been replaced already
+            if (interval != null && interval.epoch >= epoch)
+                return interval;
+            Interval rotated = new Interval(epoch);
+            if (intervals.compareAndSet(index, interval, rotated))
+                return rotated;
+        }
+    }
+
+    private static final class Interval {
+
+        private final long epoch;
+
+        private final LogLinearHistogram histogram = new LogLinearHistogram();
+
+        private Interval(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+    private static final class WindowedTimer extends Timer {
+
+        private final RollingWindowReservoir reservoir;
+
+        private WindowedTimer(RollingWindowReservoir reservoir, Clock clock) {
+            super(reservoir, clock);
+            this.reservoir = reservoir;
+        }
+    }
+
+    private static final class WindowedHistogram extends Histogram {
+
+        private final RollingWindowReservoir reservoir;
+
+        private WindowedHistogram(RollingWindowReservoir reservoir) {
+            super(reservoir);
+            this.reservoir = reservoir;
+        }
+    }
+
+    // A read-only view of the values recorded since the creation of the windowed timer or histogram
+    private static final class CumulativeHistogram extends Histogram {
+
+        private final RollingWindowReservoir reservoir;
+
+        private CumulativeHistogram(RollingWindowReservoir reservoir) {
+            super(reservoir);
+            this.reservoir = reservoir;
+        }
+
+        @Override
+        public void update(long value) {
+            throw new UnsupportedOperationException("Cumulative histograms are updated by their windowed metric");
+        }
+
+        @Override
+        public void update(int value) {
+            update((long) value);
+        }
+
+        @Override
+        public long getCount() {
+            return reservoir.getCumulativeCount();
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return reservoir.getCumulativeSnapshot();
+        }
+    }
+}
@@ -32,6 +32,28 @@ import static io.astefanutti.metrics.cdi.MetricsParameter.useAbsoluteName;
 @Vetoed
 /* package-private */ class SeMetricName implements MetricName {
 
+    // Looked up once as the Java 8 parameter reflection API is not available at compile time
+    private static final Method GET_PARAMETERS;
+
+    private static final Method IS_NAME_PRESENT;
+
+    private static final Method GET_NAME;
+
+    static {
+        Method getParameters = null, isNamePresent = null, getName = null;
+        try {
+            getParameters = Method.class.getMethod("getParameters");
+            Class<?> parameter = Class.forName("java.lang.reflect.Parameter");
+            isNamePresent = parameter.getMethod("isNamePresent");
+            getName = parameter.getMethod("getName");
+        } catch (NoSuchMethodException | ClassNotFoundException cause) {
+            // Running on Java 7
+        }
+        GET_PARAMETERS = getParameters;
+        IS_NAME_PRESENT = isNamePresent;
+        GET_NAME = getName;
+    }
+
     private final Set<MetricsParameter> parameters;
 
     SeMetricName(Set<MetricsParameter> parameters) {
@@ -65,6 +87,11 @@ import static io.astefanutti.metrics.cdi.MetricsParameter.useAbsoluteName;
         return attribute;
     }
 
+    @Override
+    public boolean isExpression(String attribute) {
+        return false;
+    }
+
     private String of(AnnotatedParameter<?> parameter) {
         if (parameter.isAnnotationPresent(Metric.class)) {
             Metric metric = parameter.getAnnotation(Metric.class);
@@ -81,17 +108,17 @@ import static io.astefanutti.metrics.cdi.MetricsParameter.useAbsoluteName;
     // And http://docs.oracle.com/javase/tutorial/reflect/member/methodparameterreflection.html
     // TODO: move into a separate metric name strategy
     private String getParameterName(AnnotatedParameter<?> parameter) {
+        if (GET_PARAMETERS == null)
+            throw new UnsupportedOperationException("Unable to retrieve name for parameter [" + parameter + "], @Metric annotation on injected parameter is required before Java 8");
         try {
-            Method method = Method.class.getMethod("getParameters");
-            Object[] parameters = (Object[]) method.invoke(parameter.getDeclaringCallable().getJavaMember());
+            Object[] parameters = (Object[]) GET_PARAMETERS.invoke(parameter.getDeclaringCallable().getJavaMember());
             Object param = parameters[parameter.getPosition()];
-            Class<?> Parameter = Class.forName("java.lang.reflect.Parameter");
-            if ((Boolean) Parameter.getMethod("isNamePresent").invoke(param))
-                return (String) Parameter.getMethod("getName").invoke(param);
+            if ((Boolean) IS_NAME_PRESENT.invoke(param))
+                return (String) GET_NAME.invoke(param);
             else
                 throw new UnsupportedOperationException("Unable to retrieve name for parameter [" + parameter + "], activate the -parameters compiler argument or annotate the injected parameter with the @Metric annotation");
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | ClassNotFoundException cause) {
-            throw new UnsupportedOperationException("Unable to retrieve name for parameter [" + parameter + "], @Metric annotation on injected parameter is required before Java 8");
+        } catch (IllegalAccessException | InvocationTargetException cause) {
+            throw new UnsupportedOperationException("Unable to retrieve name for parameter [" + parameter + "]", cause);
         }
     }
 }
@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Snapshot;
+
+import javax.enterprise.inject.Vetoed;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Merges the histogram sketches exported by the {@link HistogramSketches} bean of many nodes.
+ *
+ * The export format has one line per metric made of the tab-separated name, metric count, minimum, mean, median, 99th and
+ * 99.9th percentiles, maximum and encoded sketch of the metric, the values being nanoseconds for timers. Lines
+ * starting with {@code #} are ignored. Aggregated sketches are written in the same format so that they can be
+ * aggregated in turn. It can be run from the command line to print the aggregation of the given files, e.g.:
+ * <pre>{@code
+ * java -cp metrics-core.jar:metrics-cdi.jar io.astefanutti.metrics.cdi.SketchAggregator node-*.tsv
+ * }</pre>
+ */
+@Vetoed
+public final class SketchAggregator {
+
+    private static final String HEADER = "# name\tcount\tmin\tmean\tp50\tp99\tp999\tmax\tsketch";
+
+    private static final int FIELDS = 9;
+
+    private SketchAggregator() {
+    }
+
+    /**
+     * Merges the sketches of the metrics with the same name from the given files.
+     *
+     * @param files the files in the export format
+     * @return the merged sketches, sorted by name
+     * @throws IOException if an I/O error occurs
+     */
+    public static SortedMap<String, HistogramSketch> aggregate(Collection<Path> files) throws IOException {
+        SortedMap<String, HistogramSketch> sketches = new TreeMap<>();
+        for (Path file : files)
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, HistogramSketch> sketch : read(reader).entrySet())
+                    merge(sketches, sketch.getKey(), sketch.getValue());
+            }
+
+        return sketches;
+    }
+
+    /**
+     * Reads the sketches in the export format.
+     *
+     * @param reader the reader to read the sketches from
+     * @return the sketches, sorted by name
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if a line is not in the export format
+     */
+    public static SortedMap<String, HistogramSketch> read(Reader reader) throws IOException {
+        SortedMap<String, HistogramSketch> sketches = new TreeMap<>();
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            // The name is split off last as it may contain tabs
+            int end = line.length();
+            for (int i = 1; i < FIELDS && end > 0; i++)
+                end = line.lastIndexOf('\t', end - 1);
+            if (end <= 0)
+                throw new IllegalArgumentException("Invalid sketch line [" + line + "]");
+
+            // The count is the metric count that is larger than the number of values in the sketch for windowed metrics
+            String count = line.substring(end + 1, line.indexOf('\t', end + 1));
+            if (!count.matches("[0-9]{1,18}"))
+                throw new IllegalArgumentException("Invalid sketch count in line [" + line + "]");
+
+            merge(sketches, line.substring(0, end), HistogramSketch.decode(line.substring(line.lastIndexOf('\t') + 1), Long.parseLong(count)));
+        }
+        return sketches;
+    }
+
+    /**
+     * Writes the summary and the encoded sketch of the given sketches in the export format.
+     *
+     * @param writer the writer to write the sketches to
+     * @param sketches the sketches to write
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(Writer writer, Map<String, HistogramSketch> sketches) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (Map.Entry<String, HistogramSketch> sketch : sketches.entrySet()) {
+            Snapshot snapshot = sketch.getValue().getSnapshot();
+            writer.write(sketch.getKey() + '\t' + sketch.getValue().getCount() + '\t' + snapshot.getMin() + '\t' + snapshot.getMean() + '\t'
+                + snapshot.getMedian() + '\t' + snapshot.get99thPercentile() + '\t' + snapshot.get999thPercentile() + '\t' + snapshot.getMax() + '\t'
+                + sketch.getValue().encode());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String arg : args)
+            files.add(Paths.get(arg));
+
+        write(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), aggregate(files));
+    }
+
+    private static void merge(Map<String, HistogramSketch> sketches, String name, HistogramSketch sketch) {
+        HistogramSketch existing = sketches.get(name);
+        sketches.put(name, existing != null ? existing.merge(sketch) : sketch);
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A timed invocation whose duration exceeded the slow invocation threshold, as captured by {@link SlowInvocations}.
+ */
+public final class SlowInvocation {
+
+    private final String bean;
+
+    private final String method;
+
+    private final long duration;
+
+    private final String thread;
+
+    private final String arguments;
+
+    private final long timestamp;
+
+    @ConstructorProperties({"bean", "method", "duration", "thread", "arguments", "timestamp"})
+    public SlowInvocation(String bean, String method, long duration, String thread, String arguments, long timestamp) {
+        this.bean = bean;
+        this.method = method;
+        this.duration = duration;
+        this.thread = thread;
+        this.arguments = arguments;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return the fully qualified name of the bean class
+     */
+    public String getBean() {
+        return bean;
+    }
+
+    /**
+     * @return the name of the invoked method, or the simple name of the bean class for constructors
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the duration of the invocation in nanoseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the name of the thread that performed the invocation
+     */
+    public String getThread() {
+        return thread;
+    }
+
+    /**
+     * @return a summary of the invocation argument types, or of their values if enabled with
+     * {@link MetricsConfiguration#useSlowInvocationArguments(boolean)}, truncated to a bounded length
+     */
+    public String getArguments() {
+        return arguments;
+    }
+
+    /**
+     * @return the time at which the invocation started, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return bean + "#" + method + "(" + arguments + ") took " + duration + "ns on thread [" + thread + "] at " + timestamp;
+    }
+}
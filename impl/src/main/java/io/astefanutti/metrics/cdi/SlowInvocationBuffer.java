@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import javax.enterprise.inject.Vetoed;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+@Vetoed
+/* package-private */ final class SlowInvocationBuffer implements SlowInvocations, SlowInvocationsMXBean {
+
+    private static final int MAX_ARGUMENT_LENGTH = 32;
+
+    private static final int MAX_ARGUMENTS_LENGTH = 128;
+
+    private static final Comparator<SlowInvocation> SLOWEST_FIRST = new Comparator<SlowInvocation>() {
+        @Override
+        public int compare(SlowInvocation first, SlowInvocation second) {
+            return Long.compare(second.getDuration(), first.getDuration());
+        }
+    };
+
+    // The capacity is a power of two so that the sequence wraps around the slots with a mask
+    private static final int MASK = CAPACITY - 1;
+
+    private final AtomicReferenceArray<SlowInvocation> slots = new AtomicReferenceArray<>(MASK + 1);
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    // In nanoseconds, zero when disabled so that the interceptors only read that field for the invocations that are not slow
+    private volatile long threshold;
+
+    // The argument values may be sensitive so that only their types are captured unless enabled
+    private volatile boolean arguments;
+
+    boolean isSlow(long duration) {
+        long threshold = this.threshold;
+        return threshold > 0 && duration >= threshold;
+    }
+
+    void record(Class<?> bean, Member member, Object[] arguments, long duration) {
+        long timestamp = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(duration);
+        String method = member instanceof Constructor ? member.getDeclaringClass().getSimpleName() : member.getName();
+        SlowInvocation invocation = new SlowInvocation(bean.getName(), method, duration, Thread.currentThread().getName(), summary(arguments, this.arguments), timestamp);
+        // Concurrent writers claim distinct slots and only overwrite the oldest entries
+        slots.set((int) (sequence.getAndIncrement() & MASK), invocation);
+    }
+
+    void captureArguments(boolean arguments) {
+        this.arguments = arguments;
+    }
+
+    @Override
+    public long getThreshold(TimeUnit unit) {
+        return unit.convert(threshold, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void setThreshold(long threshold, TimeUnit unit) {
+        if (threshold < 0)
+            throw new IllegalArgumentException("Slow invocation threshold must be positive or zero: " + threshold);
+        this.threshold = unit.toNanos(threshold);
+    }
+
+    @Override
+    public long getThresholdMillis() {
+        return getThreshold(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void setThresholdMillis(long threshold) {
+        setThreshold(threshold, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<SlowInvocation> getInvocations() {
+        List<SlowInvocation> invocations = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            SlowInvocation invocation = slots.get(i);
+            if (invocation != null)
+                invocations.add(invocation);
+        }
+        Collections.sort(invocations, SLOWEST_FIRST);
+        return invocations;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++)
+            slots.set(i, null);
+    }
+
+    private static String summary(Object[] arguments, boolean values) {
+        if (arguments == null)
+            return "";
+
+        StringBuilder summary = new StringBuilder();
+        for (Object argument : arguments) {
+            if (summary.length() > 0)
+                summary.append(", ");
+            summary.append(truncate(summary(argument, values), MAX_ARGUMENT_LENGTH));
+            if (summary.length() >= MAX_ARGUMENTS_LENGTH)
+                break;
+        }
+        return truncate(summary.toString(), MAX_ARGUMENTS_LENGTH);
+    }
+
+    private static String summary(Object argument, boolean values) {
+        if (argument == null)
+            return "null";
+        if (argument.getClass().isArray())
+            return argument.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(argument) + "]";
+        if (!values)
+            return argument.getClass().getSimpleName();
+        try {
+            return String.valueOf(argument);
+        } catch (RuntimeException cause) {
+            // The argument string representation must not fail the intercepted invocation
+            return argument.getClass().getName();
+        }
+    }
+
+    private static String truncate(String value, int length) {
+        return value.length() > length ? value.substring(0, length - 3) + "..." : value;
+    }
+}
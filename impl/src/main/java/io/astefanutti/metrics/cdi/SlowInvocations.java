@@ -0,0 +1,70 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Captures the most recent timed invocations whose duration exceeded a threshold, along with their context,
+ * so that the slowest recent invocations can be inspected without enabling tracing or logging.
+ *
+ * The invocations are captured into a fixed-size ring buffer, holding the last {@value #CAPACITY} slow invocations,
+ * that the {@link com.codahale.metrics.annotation.Timed} interceptor only writes to for the outliers. The capture is
+ * disabled until a threshold is set, either with {@link MetricsConfiguration#slowInvocationThreshold(long, TimeUnit)}
+ * or at runtime, e.g.:
+ * <pre>{@code
+ * @Inject
+ * SlowInvocations slowInvocations;
+ *
+ * void incident() {
+ *     slowInvocations.setThreshold(500, TimeUnit.MILLISECONDS);
+ * }
+ * }</pre>
+ *
+ * The same operations are exposed via JMX by the {@link SlowInvocationsMXBean}.
+ */
+public interface SlowInvocations {
+
+    /**
+     * The maximum number of slow invocations retained.
+     */
+    int CAPACITY = 128;
+
+    /**
+     * @param unit the time unit of the returned threshold
+     * @return the threshold above which invocations are captured, or zero if the capture is disabled
+     */
+    long getThreshold(TimeUnit unit);
+
+    /**
+     * Sets the threshold above which invocations are captured. A threshold of zero disables the capture.
+     *
+     * @param threshold the threshold
+     * @param unit the time unit of the threshold
+     */
+    void setThreshold(long threshold, TimeUnit unit);
+
+    /**
+     * @return the recent slow invocations, slowest first
+     */
+    List<SlowInvocation> getInvocations();
+
+    /**
+     * Discards the slow invocations captured so far.
+     */
+    void clear();
+}
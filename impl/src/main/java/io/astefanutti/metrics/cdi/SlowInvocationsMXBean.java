@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.util.List;
+
+/**
+ * The JMX management interface of the {@link SlowInvocations}, registered with the
+ * {@code io.astefanutti.metrics.cdi:type=SlowInvocations} object name.
+ */
+public interface SlowInvocationsMXBean {
+
+    /**
+     * @return the threshold above which invocations are captured in milliseconds, or zero if the capture is disabled
+     */
+    long getThresholdMillis();
+
+    /**
+     * @param threshold the threshold above which invocations are captured in milliseconds, zero to disable the capture
+     */
+    void setThresholdMillis(long threshold);
+
+    /**
+     * @return the recent slow invocations, slowest first
+     */
+    List<SlowInvocation> getInvocations();
+
+    void clear();
+}
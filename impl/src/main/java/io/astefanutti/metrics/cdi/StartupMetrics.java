@@ -0,0 +1,110 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import javax.enterprise.inject.Vetoed;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Vetoed
+/* package-private */ final class StartupMetrics {
+
+    static final String PREFIX = "metrics.cdi.startup";
+
+    enum Phase {
+
+        // The metrics annotations declared as interceptor bindings in BeforeBeanDiscovery
+        bindings,
+
+        // The annotated types decorated with the metrics bindings in ProcessAnnotatedType
+        decorations,
+
+        // The metric producers collected in ProcessProducerField and ProcessProducerMethod
+        producers,
+
+        // The producer metrics registered in AfterDeploymentValidation
+        registration
+    }
+
+    // The lifecycle events may be fired concurrently by the container
+    private final AtomicLongArray durations = new AtomicLongArray(Phase.values().length);
+
+    private final AtomicLongArray counts = new AtomicLongArray(Phase.values().length);
+
+    static String time(Phase phase) {
+        return MetricRegistry.name(PREFIX, phase.name(), "time");
+    }
+
+    static String count(Phase phase) {
+        return MetricRegistry.name(PREFIX, phase.name(), "count");
+    }
+
+    long start() {
+        return System.nanoTime();
+    }
+
+    void record(Phase phase, long start, long count) {
+        durations.addAndGet(phase.ordinal(), System.nanoTime() - start);
+        counts.addAndGet(phase.ordinal(), count);
+    }
+
+    long getTime(Phase phase, TimeUnit unit) {
+        return unit.convert(durations.get(phase.ordinal()), TimeUnit.NANOSECONDS);
+    }
+
+    long getCount(Phase phase) {
+        return counts.get(phase.ordinal());
+    }
+
+    void register(MetricRegistry registry) {
+        for (final Phase phase : Phase.values()) {
+            registry.register(time(phase), new Gauge<Long>() {
+                @Override
+                public Long getValue() {
+                    return getTime(phase, TimeUnit.NANOSECONDS);
+                }
+            });
+            registry.register(count(phase), new Gauge<Long>() {
+                @Override
+                public Long getValue() {
+                    return getCount(phase);
+                }
+            });
+        }
+    }
+
+    String summary() {
+        long total = 0;
+        for (Phase phase : Phase.values())
+            total += durations.get(phase.ordinal());
+
+        StringBuilder summary = new StringBuilder("Metrics CDI startup took ").append(millis(total)).append(" [");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0)
+                summary.append(", ");
+            summary.append(phase).append(": ").append(getCount(phase)).append(" in ").append(millis(durations.get(phase.ordinal())));
+        }
+        return summary.append("]").toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1e6);
+    }
+}
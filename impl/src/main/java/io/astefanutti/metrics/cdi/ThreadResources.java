@@ -0,0 +1,89 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import javax.enterprise.inject.Vetoed;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Vetoed
+/* package-private */ final class ThreadResources {
+
+    static final String CPU = "cpu";
+
+    static final String ALLOCATED = "allocated";
+
+    static final long UNSUPPORTED = -1L;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final boolean CPU_TIME = isCpuTimeEnabled();
+
+    private static final boolean ALLOCATED_BYTES = isAllocatedBytesEnabled();
+
+    private ThreadResources() {
+    }
+
+    static boolean isSampled(double sampling) {
+        return sampling >= 1.0 || sampling > 0.0 && ThreadLocalRandom.current().nextDouble() < sampling;
+    }
+
+    static long cpuTime() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : UNSUPPORTED;
+    }
+
+    static long allocatedBytes() {
+        return ALLOCATED_BYTES ? AllocatedBytes.current() : UNSUPPORTED;
+    }
+
+    private static boolean isCpuTimeEnabled() {
+        try {
+            if (THREADS.isCurrentThreadCpuTimeSupported() && !THREADS.isThreadCpuTimeEnabled())
+                THREADS.setThreadCpuTimeEnabled(true);
+            return THREADS.isCurrentThreadCpuTimeSupported();
+        } catch (UnsupportedOperationException | SecurityException cause) {
+            return false;
+        }
+    }
+
+    private static boolean isAllocatedBytesEnabled() {
+        try {
+            return AllocatedBytes.isEnabled();
+        } catch (LinkageError | UnsupportedOperationException | SecurityException cause) {
+            // The com.sun.management extension is not available on that JVM
+            return false;
+        }
+    }
+
+    // Isolates the com.sun.management references so that they are only linked on JVMs that provide them
+    private static final class AllocatedBytes {
+
+        private static boolean isEnabled() {
+            if (!(THREADS instanceof com.sun.management.ThreadMXBean))
+                return false;
+
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && !threads.isThreadAllocatedMemoryEnabled())
+                threads.setThreadAllocatedMemoryEnabled(true);
+            return threads.isThreadAllocatedMemorySupported();
+        }
+
+        private static long current() {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+}
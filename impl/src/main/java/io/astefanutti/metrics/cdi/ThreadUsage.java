@@ -0,0 +1,52 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation requesting the timed invocations of the annotated element to record the CPU time consumed and
+ * the bytes allocated by the calling thread, alongside the wall-clock time recorded by the timer, so that CPU-bound
+ * invocations can be told apart from blocked ones and allocation-heavy invocations can be spotted.
+ *
+ * It can be declared along with the {@link com.codahale.metrics.annotation.Timed} annotation on a bean class,
+ * constructor or method, e.g.:
+ * <pre>{@code
+ * @Timed
+ * @ThreadUsage(sampling = 0.1)
+ * public void timedMethod() {
+ * }
+ * }</pre>
+ *
+ * The thread CPU time, in nanoseconds, and the allocated bytes are respectively recorded into the
+ * {@code <timer>.cpu} and {@code <timer>.allocated} histograms. Measuring them costs about a microsecond per
+ * invocation so that only a fraction of the invocations can be sampled. The allocated bytes are only available
+ * on JVMs providing the {@code com.sun.management.ThreadMXBean} extension.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD })
+public @interface ThreadUsage {
+
+    /**
+     * @return the fraction of the invocations that are measured, between {@code 0} and {@code 1}
+     */
+    double sampling() default 1.0;
+}
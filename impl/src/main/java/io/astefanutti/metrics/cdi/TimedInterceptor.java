@@ -15,6 +15,8 @@
  */
 package io.astefanutti.metrics.cdi;
 
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.codahale.metrics.annotation.Timed;
@@ -29,6 +31,8 @@ import javax.interceptor.Interceptor;
 import javax.interceptor.InvocationContext;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Member;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.interceptor.AroundTimeout;
 
 @Timed
@@ -36,17 +40,34 @@ import javax.interceptor.AroundTimeout;
 @Priority(Interceptor.Priority.LIBRARY_BEFORE  + 10)
 /* package-private */ class TimedInterceptor {
 
-    private final Bean<?> bean;
+    static final String CORRECTED = "corrected";
 
-    private final MetricRegistry registry;
+    private final Bean<?> bean;
 
     private final MetricResolver resolver;
 
+    private final MetricTags tags;
+
+    private final Clock clock;
+
+    private final MetricsSwitch control;
+
+    private final RequestBuffers buffers;
+
+    private final SlowInvocationBuffer slowInvocations;
+
+    private final HotspotTracker hotspots;
+
     @Inject
-    private TimedInterceptor(@Intercepted Bean<?> bean, MetricRegistry registry, MetricResolver resolver) {
+    private TimedInterceptor(@Intercepted Bean<?> bean, MetricResolver resolver, MetricTags tags, Clock clock, MetricsExtension extension) {
         this.bean = bean;
-        this.registry = registry;
         this.resolver = resolver;
+        this.tags = tags;
+        this.clock = clock;
+        this.control = extension.getControl();
+        this.buffers = extension.getRequestBuffers();
+        this.slowInvocations = extension.getSlowInvocations();
+        this.hotspots = extension.getHotspots();
     }
 
     @AroundConstruct
@@ -65,16 +86,92 @@ import javax.interceptor.AroundTimeout;
     }
 
     private <E extends Member & AnnotatedElement> Object timedCallable(InvocationContext context, E element) throws Exception {
-        String name = resolver.timed(bean.getBeanClass(), element).metricName();
+        if (!control.isEnabled(bean.getBeanClass(), element, Timed.class))
+            return context.proceed();
+
+        MetricResolver.Plan plan = resolver.plan(bean.getBeanClass(), element);
+        String name = plan.timed().metricName();
+        MetricRegistry registry = plan.registry();
         Timer timer = (Timer) registry.getMetrics().get(name);
         if (timer == null)
             throw new IllegalStateException("No timer with name [" + name + "] found in registry [" + registry + "]");
 
+        Timer tagged = tags.timer(registry, element, name, plan.isRecorded(), plan.rollingWindow(), context.getParameters());
+        long interval = plan.expectedInterval();
+        Histogram corrected = interval > 0 ? histogram(registry, plan.correctedName(name)) : null;
+        AtomicLong total = hotspots.total(registry, name);
+        ThreadUsage usage = plan.threadUsage();
+        if (usage == null || !ThreadResources.isSampled(usage.sampling()))
+            return timed(context, element, timer, tagged, corrected, interval, total);
+
+        long cpu = ThreadResources.cpuTime();
+        long allocated = ThreadResources.allocatedBytes();
+        try {
+            return timed(context, element, timer, tagged, corrected, interval, total);
+        } finally {
+            // Measured around the timer so that the wall-clock time does not account for the measurement cost
+            if (cpu != ThreadResources.UNSUPPORTED)
+                histogram(registry, plan.cpuName(name)).update(ThreadResources.cpuTime() - cpu);
+            if (allocated != ThreadResources.UNSUPPORTED)
+                histogram(registry, plan.allocatedName(name)).update(ThreadResources.allocatedBytes() - allocated);
+        }
+    }
+
+    private static Histogram histogram(MetricRegistry registry, String name) {
+        Histogram histogram = (Histogram) registry.getMetrics().get(name);
+        if (histogram == null)
+            throw new IllegalStateException("No histogram with name [" + name + "] found in registry [" + registry + "]");
+        return histogram;
+    }
+
+    private Object timed(InvocationContext context, Member element, Timer timer, Timer tagged, Histogram corrected, long interval, AtomicLong total) throws Exception {
+        RequestBuffer buffer = buffers.current();
+        if (buffer != null) {
+            long start = clock.getTick();
+            try {
+                return context.proceed();
+            } finally {
+                long duration = clock.getTick() - start;
+                buffer.update(timer, duration);
+                if (tagged != null)
+                    buffer.update(tagged, duration);
+                if (corrected != null)
+                    corrected(corrected, duration, interval);
+                if (total != null)
+                    total.addAndGet(duration);
+                if (slowInvocations.isSlow(duration))
+                    slowInvocations.record(bean.getBeanClass(), element, context.getParameters(), duration);
+            }
+        }
+
         Timer.Context time = timer.time();
         try {
             return context.proceed();
         } finally {
-            time.stop();
+            long duration = time.stop();
+            if (tagged != null)
+                tagged.update(duration, TimeUnit.NANOSECONDS);
+            if (corrected != null)
+                corrected(corrected, duration, interval);
+            if (total != null)
+                total.addAndGet(duration);
+            if (slowInvocations.isSlow(duration))
+                slowInvocations.record(bean.getBeanClass(), element, context.getParameters(), duration);
+        }
+    }
+
+    // Records the duration along with the samples omitted while the invocation exceeded the expected interval,
+    // so that the timer count and rates only account for the actual invocations
+    private static void corrected(Histogram corrected, long duration, long interval) {
+        corrected.update(duration);
+        long missing = (duration - interval) / interval;
+        if (missing <= ExpectedInterval.MAX_SAMPLES) {
+            for (long i = 1; i <= missing; i++)
+                corrected.update(duration - i * interval);
+        } else {
+            // Evenly spread over the omitted samples so that a long stall does not stall the caller again
+            for (long j = 1; j <= ExpectedInterval.MAX_SAMPLES; j++)
+                corrected.update(duration - (missing / ExpectedInterval.MAX_SAMPLES * j + missing % ExpectedInterval.MAX_SAMPLES * j / ExpectedInterval.MAX_SAMPLES) * interval);
         }
     }
 }
@@ -0,0 +1,173 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.web;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/* package-private */ final class CountingResponse extends HttpServletResponseWrapper {
+
+    private CountingOutputStream stream;
+
+    private CountingWriter counting;
+
+    private PrintWriter writer;
+
+    CountingResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null)
+            throw new IllegalStateException("getWriter() has already been called for this response");
+        if (stream == null)
+            stream = new CountingOutputStream(super.getOutputStream());
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (stream != null)
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            // The container writer is wrapped without any additional buffering so that its buffer management, e.g. on reset, still applies
+            counting = new CountingWriter(super.getWriter(), getCharacterEncoding());
+            writer = new PrintWriter(counting);
+        }
+        return writer;
+    }
+
+    long getCount() {
+        if (stream != null)
+            return stream.count;
+        else if (counting != null)
+            return counting.count;
+        else
+            return 0L;
+    }
+
+    private static final class CountingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        // Only written by the thread processing the response
+        private long count;
+
+        private CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            delegate.write(bytes, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            delegate.setWriteListener(listener);
+        }
+    }
+
+    private static final class CountingWriter extends Writer {
+
+        private final Writer delegate;
+
+        // The number of bytes is computed for the common charsets, otherwise characters are counted
+        private final boolean utf8;
+
+        // Only written by the thread processing the response
+        private long count;
+
+        private CountingWriter(Writer delegate, String encoding) {
+            this.delegate = delegate;
+            this.utf8 = "UTF-8".equalsIgnoreCase(encoding) || "UTF8".equalsIgnoreCase(encoding);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            delegate.write(c);
+            count += length((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            delegate.write(chars, offset, length);
+            if (utf8)
+                for (int i = offset; i < offset + length; i++)
+                    count += length(chars[i]);
+            else
+                count += length;
+        }
+
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            delegate.write(string, offset, length);
+            if (utf8)
+                for (int i = offset; i < offset + length; i++)
+                    count += length(string.charAt(i));
+            else
+                count += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        // Each surrogate accounts for half of the 4 bytes of the encoded pair
+        private int length(char c) {
+            if (!utf8 || c < 0x80)
+                return 1;
+            else if (c < 0x800 || Character.isSurrogate(c))
+                return 2;
+            else
+                return 3;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.web;
+
+import io.astefanutti.metrics.cdi.Hotspot;
+import io.astefanutti.metrics.cdi.Hotspots;
+
+import javax.enterprise.inject.spi.CDI;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * Renders the rankings maintained by the CDI {@link Hotspots} as a JSON object.
+ */
+public class HotspotsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient Hotspots hotspots;
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            hotspots = CDI.current().select(Hotspots.class).get();
+        } catch (IllegalStateException cause) {
+            throw new ServletException("No CDI container available to retrieve the hotspots", cause);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+
+        PrintWriter writer = response.getWriter();
+        writer.append("{\"slowest\":");
+        write(writer, hotspots.getSlowest());
+        writer.append(",\"mostCalled\":");
+        write(writer, hotspots.getMostCalled());
+        writer.append(",\"mostTime\":");
+        write(writer, hotspots.getMostTime());
+        writer.append('}');
+    }
+
+    private static void write(PrintWriter writer, List<Hotspot> ranking) {
+        writer.append('[');
+        for (int i = 0; i < ranking.size(); i++) {
+            if (i > 0)
+                writer.append(',');
+            writer.append("{\"name\":").append(Json.quote(ranking.get(i).getName()))
+                .append(",\"value\":").append(Double.toString(ranking.get(i).getValue()))
+                .append('}');
+        }
+        writer.append(']');
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.web;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import javax.enterprise.inject.spi.CDI;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Times the HTTP requests per method, route template and response status class into the CDI {@link MetricRegistry},
+ * e.g. {@code http.requests.GET /orders/{id}.2xx}, and measures the number of requests in flight and the bytes written.
+ *
+ * The route template is the request path with the segments that look like identifiers, i.e. numbers, UUIDs
+ * and long hexadecimal strings, replaced with {@code {id}}. The application can provide the template explicitly
+ * with the {@value #ROUTE} request attribute. The number of timed routes is bounded by the {@value #MAX_ROUTES}
+ * filter parameter, defaulting to {@value #DEFAULT_MAX_ROUTES}, and the requests for any additional routes
+ * are timed with the {@code {other}} route template. Non-standard HTTP methods are timed with the {@code OTHER} method.
+ */
+public class RequestTimingFilter implements Filter {
+
+    public static final String ROUTE = "io.astefanutti.metrics.cdi.web.route";
+
+    public static final String MAX_ROUTES = "maxRoutes";
+
+    public static final String PREFIX = "http.requests";
+
+    static final int DEFAULT_MAX_ROUTES = 500;
+
+    static final String OTHER = "{other}";
+
+    private static final String[] METHODS = {"GET", "HEAD", "POST", "PUT", "DELETE", "OPTIONS", "TRACE", "PATCH", "CONNECT"};
+
+    private static final String[] STATUS_CLASSES = {"xxx", "1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+
+    private MetricRegistry registry;
+
+    private int maxRoutes;
+
+    private Counter active;
+
+    private Meter bytes;
+
+    @Override
+    public void init(FilterConfig config) {
+        String maxRoutes = config.getInitParameter(MAX_ROUTES);
+        this.maxRoutes = maxRoutes != null ? Integer.parseInt(maxRoutes) : DEFAULT_MAX_ROUTES;
+        try {
+            registry = CDI.current().select(MetricRegistry.class).get();
+        } catch (IllegalStateException cause) {
+            config.getServletContext().log("No CDI container available, HTTP requests won't be timed", cause);
+            return;
+        }
+        active = registry.counter(MetricRegistry.name(PREFIX, "active"));
+        bytes = registry.meter(MetricRegistry.name(PREFIX, "bytes"));
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (registry == null || !(request instanceof HttpServletRequest && response instanceof HttpServletResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        CountingResponse httpResponse = new CountingResponse((HttpServletResponse) response);
+        long start = System.nanoTime();
+        active.inc();
+        try {
+            chain.doFilter(request, httpResponse);
+        } catch (IOException | ServletException | RuntimeException | Error cause) {
+            // The container responds with an internal server error
+            complete(httpRequest, httpResponse, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, start);
+            throw cause;
+        }
+        if (httpRequest.isAsyncStarted())
+            httpRequest.getAsyncContext().addListener(new AsyncCompletion(httpRequest, httpResponse, start));
+        else
+            complete(httpRequest, httpResponse, httpResponse.getStatus(), start);
+    }
+
+    @Override
+    public void destroy() {
+        routes.clear();
+    }
+
+    private void complete(HttpServletRequest request, CountingResponse response, int status, long start) {
+        active.dec();
+        bytes.mark(response.getCount());
+        timer(request, status).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(HttpServletRequest request, int status) {
+        Object attribute = request.getAttribute(ROUTE);
+        // The servlet path and path info exclude the path parameters, e.g. the session ID, unlike the request URI
+        String path = request.getPathInfo() != null ? request.getServletPath() + request.getPathInfo() : request.getServletPath();
+        String template = attribute != null ? attribute.toString() : template(path);
+        String method = method(request.getMethod());
+        String key = method + " " + template;
+        Route route = routes.get(key);
+        if (route == null) {
+            // Bound the number of routes so that arbitrary paths cannot make the registry grow unbounded
+            if (routes.size() >= maxRoutes)
+                key = method + " " + OTHER;
+            route = new Route(key);
+            Route existing = routes.putIfAbsent(key, route);
+            if (existing != null)
+                route = existing;
+        }
+        int statusClass = status / 100;
+        return route.timer(statusClass > 0 && statusClass < STATUS_CLASSES.length ? statusClass : 0);
+    }
+
+    /**
+     * Returns the given method if it is a standard HTTP method, or {@code OTHER} so that arbitrary methods
+     * cannot make the number of routes grow unbounded.
+     */
+    static String method(String method) {
+        for (String standard : METHODS)
+            if (standard.equals(method))
+                return standard;
+
+        return "OTHER";
+    }
+
+    /**
+     * Returns the route template of the given path, that is the path with the segments that look like
+     * identifiers replaced with {@code {id}}.
+     */
+    static String template(String path) {
+        StringBuilder template = null;
+        int start = 0;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0)
+                end = path.length();
+            if (isIdentifier(path, start, end)) {
+                if (template == null)
+                    template = new StringBuilder(path.length()).append(path, 0, start);
+                template.append("{id}");
+            } else if (template != null) {
+                template.append(path, start, end);
+            }
+            if (end < path.length() && template != null)
+                template.append('/');
+            start = end + 1;
+        }
+        return template != null ? template.toString() : path;
+    }
+
+    private static boolean isIdentifier(String path, int start, int end) {
+        int length = end - start;
+        if (length == 0)
+            return false;
+
+        boolean digits = true;
+        int dashes = 0;
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c == '-') {
+                dashes++;
+                digits = false;
+            } else if (c >= '0' && c <= '9') {
+                continue;
+            } else if (c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F') {
+                digits = false;
+            } else {
+                return false;
+            }
+        }
+        if (digits)
+            return true;
+        // UUIDs and hexadecimal strings of at least 16 characters, e.g. hashes and object IDs
+        return dashes == 4 && length == 36 || dashes == 0 && length >= 16;
+    }
+
+    private final class Route {
+
+        private final String name;
+
+        private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(STATUS_CLASSES.length);
+
+        private Route(String name) {
+            this.name = name;
+        }
+
+        private Timer timer(int statusClass) {
+            Timer timer = timers.get(statusClass);
+            if (timer == null) {
+                // The registry returns the existing timer on concurrent creation
+                timer = registry.timer(MetricRegistry.name(PREFIX, name, STATUS_CLASSES[statusClass]));
+                timers.set(statusClass, timer);
+            }
+            return timer;
+        }
+    }
+
+    private final class AsyncCompletion implements AsyncListener {
+
+        private final HttpServletRequest request;
+
+        private final CountingResponse response;
+
+        private final long start;
+
+        private AsyncCompletion(HttpServletRequest request, CountingResponse response, long start) {
+            this.request = request;
+            this.response = response;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            complete(request, response, response.getStatus(), start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
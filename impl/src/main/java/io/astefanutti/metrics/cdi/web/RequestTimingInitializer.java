@@ -0,0 +1,47 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.web;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterRegistration;
+import javax.servlet.ServletContainerInitializer;
+import javax.servlet.ServletContext;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Registers the {@link RequestTimingFilter} for all the requests of the web applications that
+ * bundle Metrics CDI. That registration can be disabled by setting the {@value #ENABLED}
+ * context parameter to {@code false}.
+ */
+public class RequestTimingInitializer implements ServletContainerInitializer {
+
+    public static final String ENABLED = "metrics.cdi.request.timing";
+
+    @Override
+    public void onStartup(Set<Class<?>> classes, ServletContext context) {
+        if ("false".equalsIgnoreCase(context.getInitParameter(ENABLED)))
+            return;
+
+        FilterRegistration.Dynamic filter = context.addFilter(RequestTimingFilter.class.getName(), RequestTimingFilter.class);
+        // The filter may already have been declared in the deployment descriptor
+        if (filter == null)
+            return;
+
+        filter.setAsyncSupported(true);
+        filter.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), false, "/*");
+    }
+}
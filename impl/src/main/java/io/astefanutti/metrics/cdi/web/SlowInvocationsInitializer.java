@@ -0,0 +1,45 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.web;
+
+import javax.servlet.ServletContainerInitializer;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRegistration;
+import java.util.Set;
+
+/**
+ * Registers the {@link SlowInvocationsServlet} for the web applications that bundle Metrics CDI and map it
+ * with the {@value #MAPPING} context parameter, e.g. {@code /metrics/slow}. As the slow invocations contain
+ * a summary of the invocation arguments, the servlet is not registered unless that parameter is set.
+ */
+public class SlowInvocationsInitializer implements ServletContainerInitializer {
+
+    public static final String MAPPING = "metrics.cdi.slow.invocations";
+
+    @Override
+    public void onStartup(Set<Class<?>> classes, ServletContext context) {
+        String mapping = context.getInitParameter(MAPPING);
+        if (mapping == null || mapping.trim().isEmpty())
+            return;
+
+        ServletRegistration.Dynamic servlet = context.addServlet(SlowInvocationsServlet.class.getName(), SlowInvocationsServlet.class);
+        // The servlet may already have been declared in the deployment descriptor
+        if (servlet == null)
+            return;
+
+        servlet.addMapping(mapping.trim());
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.web;
+
+import io.astefanutti.metrics.cdi.SlowInvocation;
+import io.astefanutti.metrics.cdi.SlowInvocations;
+
+import javax.enterprise.inject.spi.CDI;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Renders the recent slow invocations captured by the CDI {@link SlowInvocations} as a JSON array, slowest first.
+ */
+public class SlowInvocationsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient SlowInvocations invocations;
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            invocations = CDI.current().select(SlowInvocations.class).get();
+        } catch (IllegalStateException cause) {
+            throw new ServletException("No CDI container available to retrieve the slow invocations", cause);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+
+        PrintWriter writer = response.getWriter();
+        writer.append('[');
+        boolean first = true;
+        for (SlowInvocation invocation : invocations.getInvocations()) {
+            if (!first)
+                writer.append(',');
+            first = false;
+            writer.append("{\"bean\":").append(Json.quote(invocation.getBean()))
+                .append(",\"method\":").append(Json.quote(invocation.getMethod()))
+                .append(",\"duration\":").append(Long.toString(invocation.getDuration()))
+                .append(",\"thread\":").append(Json.quote(invocation.getThread()))
+                .append(",\"arguments\":").append(Json.quote(invocation.getArguments()))
+                .append(",\"timestamp\":").append(Long.toString(invocation.getTimestamp()))
+                .append('}');
+        }
+        writer.append(']');
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright © 2013 Antonin Stefanutti (antonin.stefanutti@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.astefanutti.metrics.cdi.processor;
+
+import io.astefanutti.metrics.cdi.GaugeAccessor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates, for each class declaring {@link com.codahale.metrics.annotation.Gauge} or
+ * {@link com.codahale.metrics.annotation.CachedGauge} methods, a {@link GaugeAccessor} that invokes these methods
+ * directly so that Metrics CDI does not rely on reflection to read the gauges at runtime.
+ */
+@SupportedAnnotationTypes({"com.codahale.metrics.annotation.Gauge", "com.codahale.metrics.annotation.CachedGauge"})
+public class GaugeAccessorProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        Map<TypeElement, Map<String, TypeKind>> gauges = new LinkedHashMap<>();
+        for (TypeElement annotation : annotations)
+            for (Element element : round.getElementsAnnotatedWith(annotation))
+                if (isAccessible(element)) {
+                    TypeElement type = (TypeElement) element.getEnclosingElement();
+                    if (!gauges.containsKey(type))
+                        gauges.put(type, new LinkedHashMap<String, TypeKind>());
+                    gauges.get(type).put(element.getSimpleName().toString(), ((ExecutableElement) element).getReturnType().getKind());
+                }
+
+        for (Map.Entry<TypeElement, Map<String, TypeKind>> type : gauges.entrySet())
+            generate(type.getKey(), type.getValue());
+
+        // Let other processors handle the Metrics annotations
+        return false;
+    }
+
+    private void generate(TypeElement type, Map<String, TypeKind> methods) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + GaugeAccessor.SUFFIX;
+        String className = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        String typeName = type.getQualifiedName().toString();
+
+        try (PrintWriter writer = new PrintWriter(processingEnv.getFiler().createSourceFile(className, type).openWriter())) {
+            if (!packageName.isEmpty())
+                writer.println("package " + packageName + ";");
+            writer.println();
+            writer.println("@SuppressWarnings({\"rawtypes\", \"unchecked\"})");
+            writer.println("public final class " + simpleName + " implements " + GaugeAccessor.class.getName() + " {");
+            generate(writer, "Object", "get", methods.keySet(), typeName);
+            generate(writer, "long", "getAsLong", methodsReturning(methods, TypeKind.LONG), typeName);
+            generate(writer, "double", "getAsDouble", methodsReturning(methods, TypeKind.DOUBLE), typeName);
+            writer.println("}");
+        } catch (IOException cause) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Unable to generate gauge accessor [" + className + "]: " + cause.getMessage(), type);
+        }
+    }
+
+    private static void generate(PrintWriter writer, String returnType, String name, Set<String> methods, String typeName) {
+        writer.println();
+        writer.println("    @Override");
+        writer.println("    public " + returnType + " " + name + "(Object target, String method) {");
+        writer.println("        switch (method) {");
+        for (String method : methods) {
+            writer.println("            case \"" + method + "\":");
+            writer.println("                return ((" + typeName + ") target)." + method + "();");
+        }
+        writer.println("            default:");
+        writer.println("                throw new IllegalArgumentException(\"No " + ("Object".equals(returnType) ? "" : returnType + " ") + "gauge method [\" + method + \"] declared in [" + typeName + "]\");");
+        writer.println("        }");
+        writer.println("    }");
+    }
+
+    private static Set<String> methodsReturning(Map<String, TypeKind> methods, TypeKind kind) {
+        Set<String> names = new LinkedHashSet<>();
+        for (Map.Entry<String, TypeKind> method : methods.entrySet())
+            if (method.getValue() == kind)
+                names.add(method.getKey());
+        return names;
+    }
+
+    // Only the methods that can be invoked from a class generated in the same package are supported
+    private static boolean isAccessible(Element element) {
+        if (element.getKind() != ElementKind.METHOD || element.getModifiers().contains(Modifier.PRIVATE) || element.getModifiers().contains(Modifier.STATIC))
+            return false;
+
+        ExecutableElement method = (ExecutableElement) element;
+        if (!method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID)
+            return false;
+
+        for (Element type = element.getEnclosingElement(); type instanceof TypeElement; type = type.getEnclosingElement())
+            if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.PRIVATE)
+                || ((TypeElement) type).getNestingKind() == NestingKind.LOCAL || ((TypeElement) type).getNestingKind() == NestingKind.ANONYMOUS)
+                return false;
+
+        return true;
+    }
+}